@@ -0,0 +1,145 @@
+package benchmarks;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import rubikscube.Corner;
+import rubikscube.CubeState;
+import rubikscube.Edge;
+import rubikscube.Manipulator;
+import rubikscube.RandomStates;
+import rubikscube.RubiksCube;
+import rubikscube.Side;
+
+/**
+ * Benchmarks of the cube model and the layer by layer solver, in operations
+ * per second. Run from main they also report the bytes allocated by each
+ * operation (the gc.alloc.rate.norm of the GC profiler).
+ *
+ * The solver is timed on a corpus of random states (see RandomStates) made
+ * from a fixed seed, so every run solves the same cubes.
+ * @author Cathal
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CubeBenchmarks
+{
+	private static final Side[] SIDES = Side.values();
+
+	@Param("1024")
+	private int corpusSize;
+
+	@Param("42")
+	private long seed;
+
+	private RubiksCube cube;
+	private Corner corner;
+	private HashMap<Side, Side> sideMap;
+	private Manipulator manipulator;
+	private CubeState[] corpus;
+	private int next;
+
+	@Setup
+	public void setUp()
+	{
+		this.cube = new RubiksCube();
+		this.cube.randomize(100, new Random(this.seed));
+		this.corner = new Corner(new Side[] {Side.TOP, Side.FRONT, Side.LEFT});
+		this.sideMap = new HashMap<>(RubiksCube.ROTATION_DATA.get(Side.TOP));
+		this.manipulator = new Manipulator();
+		RandomStates states = new RandomStates(this.seed);
+		this.corpus = new CubeState[this.corpusSize];
+		for (int i = 0; i < this.corpusSize; i++)
+		{
+			this.corpus[i] = new CubeState();
+			states.next(this.corpus[i]);
+		}
+	}
+
+	/**
+	 * Get the next side, going round all six.
+	 */
+	private Side nextSide()
+	{
+		Side side = SIDES[this.next];
+		this.next = this.next == SIDES.length - 1 ? 0 : this.next + 1;
+		return side;
+	}
+
+	@Benchmark
+	public RubiksCube rotate()
+	{
+		this.cube.rotate(this.nextSide());
+		return this.cube;
+	}
+
+	@Benchmark
+	public Corner pieceRotate()
+	{
+		this.corner.rotate(this.sideMap);
+		return this.corner;
+	}
+
+	@Benchmark
+	public Edge[] getEdgesWithDestinationSide()
+	{
+		return this.cube.getEdgesWithDestinationSide(this.nextSide());
+	}
+
+	@Benchmark
+	public Corner[] getCornersWithDestinationSide()
+	{
+		return this.cube.getCornersWithDestinationSide(this.nextSide());
+	}
+
+	@Benchmark
+	public byte[] solve()
+	{
+		CubeState state = this.corpus[this.next];
+		this.next = this.next == this.corpus.length - 1 ? 0 : this.next + 1;
+		return this.manipulator.solve(state);
+	}
+
+	/**
+	 * Run the benchmarks with the GC profiler, taking the usual JMH command
+	 * line options, for example a regular expression of the benchmarks to
+	 * run.
+	 * @param args the JMH options
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException
+	{
+		CommandLineOptions options = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+		if (options.getIncludes().isEmpty())
+		{
+			builder.include(CubeBenchmarks.class.getSimpleName());
+		}
+		builder.addProfiler(GCProfiler.class);
+		new Runner(builder.build()).run();
+	}
+}
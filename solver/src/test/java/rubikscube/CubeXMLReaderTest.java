@@ -0,0 +1,131 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Reading cubes from xml, with the stream reader and from a document.
+ * @author Cathal
+ *
+ */
+public class CubeXMLReaderTest
+{
+	private static final String LETTERS = "toflra";
+	private static final Side[] LETTER_SIDES = {Side.TOP, Side.BOTTOM, Side.FRONT,
+			Side.LEFT, Side.RIGHT, Side.BACK};
+
+	/**
+	 * Get the letters of some sides (see CubeXMLReader.getSide).
+	 */
+	private static String letters(Side[] sides)
+	{
+		StringBuilder letters = new StringBuilder();
+		for (Side side : sides)
+		{
+			for (int i = 0; i < LETTER_SIDES.length; i++)
+			{
+				if (LETTER_SIDES[i] == side) letters.append(LETTERS.charAt(i));
+			}
+		}
+		return letters.toString();
+	}
+
+	/**
+	 * Make the xml of the solved cube, with the current sides of one piece
+	 * changed.
+	 * @param piece the index of the piece to change, edges then corners, or
+	 * -1 to change none
+	 * @param current the current sides to give it
+	 */
+	private static String solvedCube(int piece, Side[] current)
+	{
+		StringBuilder xml = new StringBuilder("<rubikscube>\n");
+		int index = 0;
+		for (Side[][] positions : new Side[][][] {RubiksCube.EDGE_POSITIONS,
+				RubiksCube.CORNER_POSITIONS})
+		{
+			for (Side[] sides : positions)
+			{
+				xml.append("  <piece>\n    <destination>").append(letters(sides))
+						.append("</destination>\n    <current>")
+						.append(letters(index == piece ? current : sides))
+						.append("</current>\n  </piece>\n");
+				index++;
+			}
+		}
+		return xml.append("</rubikscube>\n").toString();
+	}
+
+	private static void readStream(String xml, CubeState state) throws Exception
+	{
+		try (CubeXMLReader reader = new CubeXMLReader(
+				new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+		{
+			assertTrue(reader.next(state));
+		}
+	}
+
+	private static void readDocument(String xml, CubeState state) throws Exception
+	{
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+				new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+		CubeXMLReader.read(doc, state);
+	}
+
+	@Test
+	public void readsSolvedCube() throws Exception
+	{
+		String xml = solvedCube(-1, null);
+		CubeState state = new CubeState();
+		state.move(0);
+		readStream(xml, state);
+		assertTrue(state.isSolved());
+		state.move(0);
+		readDocument(xml, state);
+		assertTrue(state.isSolved());
+	}
+
+	@Test
+	public void rejectsPieceUsedTwice()
+	{
+		// the second edge says it is the first edge
+		String xml = solvedCube(-1, null).replaceFirst(
+				"<destination>" + letters(RubiksCube.EDGE_POSITIONS[1]),
+				"<destination>" + letters(RubiksCube.EDGE_POSITIONS[0]));
+		CubeState state = new CubeState();
+		assertThrows(IllegalArgumentException.class, () -> readStream(xml, state));
+		assertThrows(IllegalArgumentException.class, () -> readDocument(xml, state));
+	}
+
+	@Test
+	public void rejectsTwoPiecesAtOnePosition()
+	{
+		// the second edge is at the position of the first, leaving its own
+		// position empty
+		String xml = solvedCube(1, RubiksCube.EDGE_POSITIONS[0]);
+		CubeState state = new CubeState();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> readStream(xml, state));
+		assertEquals("Two pieces are at the same position", e.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> readDocument(xml, state));
+	}
+
+	@Test
+	public void rejectsTwoCornersAtOnePosition()
+	{
+		int firstCorner = RubiksCube.EDGE_POSITIONS.length;
+		String xml = solvedCube(firstCorner + 3, RubiksCube.CORNER_POSITIONS[0]);
+		CubeState state = new CubeState();
+		assertThrows(IllegalArgumentException.class, () -> readStream(xml, state));
+		assertThrows(IllegalArgumentException.class, () -> readDocument(xml, state));
+	}
+}
@@ -0,0 +1,32 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The layer by layer solver makes no garbage once it is warmed up (see
+ * SolverFuzzer.getGarbage).
+ * @author Cathal
+ *
+ */
+public class ManipulatorAllocationTest
+{
+	private static final int COUNT = 2000;
+	private static final int RUNS = 5;
+	// the most bytes allowed besides the solutions in all COUNT solves, a
+	// little over none so a stray allocation of the JVM doesn't fail it
+	private static final long BUDGET = 1024;
+
+	@Test
+	public void solvesWithoutGarbage()
+	{
+		long garbage = SolverFuzzer.getGarbage(new Manipulator(), COUNT, 0, RUNS);
+		assumeTrue(garbage >= 0, "This JVM can't measure the memory a thread allocates");
+		System.out.println("Manipulator: " + garbage + " bytes in " + COUNT
+				+ " solves besides the solutions");
+		assertTrue(garbage <= BUDGET, garbage + " bytes in " + COUNT
+				+ " solves besides the solutions, more than the budget of " + BUDGET);
+	}
+}
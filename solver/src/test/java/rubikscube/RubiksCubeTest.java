@@ -0,0 +1,82 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Making a cube from hash maps of its pieces.
+ * @author Cathal
+ *
+ */
+public class RubiksCubeTest
+{
+	/**
+	 * Make the hash map of the pieces of the solved cube, with the current
+	 * sides of one piece changed.
+	 * @param positions the positions of the kind of piece
+	 * @param piece the index of the piece to change, or -1 to change none
+	 * @param current the current sides to give it
+	 */
+	private static HashMap<Integer, HashMap<String, Side[]>> solvedPieces(
+			Side[][] positions, int piece, Side[] current)
+	{
+		HashMap<Integer, HashMap<String, Side[]>> pieces = new HashMap<>();
+		for (int i = 0; i < positions.length; i++)
+		{
+			HashMap<String, Side[]> sides = new HashMap<>();
+			sides.put("destination", positions[i]);
+			sides.put("current", i == piece ? current : positions[i]);
+			pieces.put(i, sides);
+		}
+		return pieces;
+	}
+
+	@Test
+	public void makesSolvedCube()
+	{
+		RubiksCube cube = new RubiksCube(
+				solvedPieces(RubiksCube.EDGE_POSITIONS, -1, null),
+				solvedPieces(RubiksCube.CORNER_POSITIONS, -1, null));
+		assertTrue(cube.getState().isSolved());
+	}
+
+	@Test
+	public void rejectsPieceUsedTwice()
+	{
+		HashMap<Integer, HashMap<String, Side[]>> edges =
+				solvedPieces(RubiksCube.EDGE_POSITIONS, -1, null);
+		edges.get(1).put("destination", RubiksCube.EDGE_POSITIONS[0]);
+		edges.get(1).put("current", RubiksCube.EDGE_POSITIONS[1]);
+		assertThrows(IllegalArgumentException.class, () -> new RubiksCube(edges,
+				solvedPieces(RubiksCube.CORNER_POSITIONS, -1, null)));
+	}
+
+	@Test
+	public void rejectsTwoEdgesAtOnePosition()
+	{
+		// the second edge is at the position of the first, leaving its own
+		// position empty
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> new RubiksCube(
+						solvedPieces(RubiksCube.EDGE_POSITIONS, 1, RubiksCube.EDGE_POSITIONS[0]),
+						solvedPieces(RubiksCube.CORNER_POSITIONS, -1, null)));
+		assertTrue(e.getMessage().startsWith("Two edges are at the same position"));
+	}
+
+	@Test
+	public void rejectsTwoCornersAtOnePosition()
+	{
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> new RubiksCube(
+						solvedPieces(RubiksCube.EDGE_POSITIONS, -1, null),
+						solvedPieces(RubiksCube.CORNER_POSITIONS, 3,
+								RubiksCube.CORNER_POSITIONS[0])));
+		assertEquals("Two corners are at the same position: "
+				+ CubeState.findCorner(RubiksCube.CORNER_POSITIONS[0]), e.getMessage());
+	}
+}
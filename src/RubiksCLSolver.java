@@ -1,14 +1,212 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
 import mvcbase.Command;
+import mvcbase.RubiksBatchController;
 import mvcbase.RubiksCLController;
+import mvcbase.RubiksHttpController;
 import mvcbase.RubiksSolverModel;
+import rubikscube.CubeSolver;
+import rubikscube.Manipulator;
+import rubikscube.OptimalSolver;
+import rubikscube.RandomStates;
+import rubikscube.SolverFuzzer;
+import rubikscube.TwoPhaseSolver;
 
 public class RubiksCLSolver
 {
 	
+	/**
+	 * Start the solver with its view. With --batch as the first argument it
+	 * solves cubes without a view instead (see RubiksBatchController), and
+	 * with --serve it serves solutions over HTTP (see RubiksHttpController).
+	 * With --corpus it writes a state file of random states (see
+	 * RandomStates) for benchmarking or testing, and with --fuzz it checks
+	 * the solutions of solvers on random states (see SolverFuzzer). With
+	 * --alloc it checks that solvers make no garbage, failing if they make
+	 * more than a budget.
+	 * @param args the command line arguments
+	 */
 	public static void main(String[] args)
 	{
+		if (args.length > 0 && args[0].equals("--batch"))
+		{
+			String[] batchArgs = new String[args.length - 1];
+			System.arraycopy(args, 1, batchArgs, 0, batchArgs.length);
+			System.exit(RubiksBatchController.run(batchArgs));
+		}
+		if (args.length > 0 && args[0].equals("--serve"))
+		{
+			String[] serveArgs = new String[args.length - 1];
+			System.arraycopy(args, 1, serveArgs, 0, serveArgs.length);
+			int status = RubiksHttpController.run(serveArgs);
+			if (status != 0) System.exit(status);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--corpus"))
+		{
+			System.exit(writeCorpus(args));
+		}
+		if (args.length > 0 && args[0].equals("--fuzz"))
+		{
+			System.exit(fuzz(args));
+		}
+		if (args.length > 0 && args[0].equals("--alloc"))
+		{
+			System.exit(checkAllocation(args));
+		}
 		RubiksSolverModel model = new RubiksSolverModel();
 		RubiksCLController c = new RubiksCLController(model);
 		c.doCommand(Command.START);
 	}
+	
+	/**
+	 * Write a state file of random states.
+	 * @param args --corpus, then the file, the number of states and the seed,
+	 * which is 0 if not given
+	 * @return the exit status: 0 if all went well, 1 if the file couldn't be
+	 * written, 2 if the arguments were wrong
+	 */
+	private static int writeCorpus(String[] args)
+	{
+		File file;
+		long count;
+		long seed = 0;
+		try
+		{
+			if (args.length < 3 || args.length > 4) throw new IllegalArgumentException();
+			file = new File(args[1]);
+			count = Long.parseLong(args[2]);
+			if (count < 0) throw new IllegalArgumentException();
+			if (args.length == 4) seed = Long.parseLong(args[3]);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("Usage: RubiksCLSolver --corpus file count [seed]");
+			return 2;
+		}
+		try
+		{
+			RandomStates.writeCorpus(file, count, seed);
+			return 0;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not write " + file + ": " + e);
+			return 1;
+		}
+	}
+	
+	/**
+	 * Check solvers on random states, writing each failure to standard
+	 * output and a summary to standard error.
+	 * @param args --fuzz, then the number of states, the seed, which is 0 if
+	 * not given, and the solvers to check: lbl, twophase or optimal, lbl if
+	 * none are given
+	 * @return the exit status: 0 if every solution solved its state, 1 if
+	 * any didn't, 2 if the arguments were wrong
+	 */
+	private static int fuzz(String[] args)
+	{
+		SolverFuzzer fuzzer = new SolverFuzzer(System.out);
+		long count;
+		long seed = 0;
+		try
+		{
+			if (args.length < 2) throw new IllegalArgumentException();
+			count = Long.parseLong(args[1]);
+			if (count < 0) throw new IllegalArgumentException();
+			if (args.length > 2) seed = Long.parseLong(args[2]);
+			for (int i = 3; i < args.length; i++)
+			{
+				fuzzer.addSolver(args[i], getSolvers(args[i]));
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("Usage: RubiksCLSolver --fuzz count [seed [solver...]]");
+			return 2;
+		}
+		if (args.length <= 3) fuzzer.addSolver("lbl", Manipulator::new);
+		long nanos = System.nanoTime();
+		long failures = fuzzer.run(count, seed, Runtime.getRuntime().availableProcessors());
+		nanos = System.nanoTime() - nanos;
+		fuzzer.printSummary(System.err);
+		System.err.printf("in %.3f s: %.1f cases/s%n", nanos / 1e9, count / (nanos / 1e9));
+		return failures == 0 ? 0 : 1;
+	}
+	
+	/**
+	 * Check that solvers make no garbage when solving, besides their
+	 * solutions, writing the bytes allocated to standard error. Each solver
+	 * is measured several times and the least is taken (see
+	 * SolverFuzzer.getGarbage).
+	 * @param args --alloc, then the number of states to solve, 10000 if not
+	 * given, the most bytes allowed for each solve on average, 0 if not
+	 * given, and the solvers to check: lbl, twophase or optimal, lbl if
+	 * none are given
+	 * @return the exit status: 0 if every solver is within the budget, 1 if
+	 * any isn't or it can't be measured, 2 if the arguments were wrong
+	 */
+	private static int checkAllocation(String[] args)
+	{
+		int count = 10000;
+		double budget = 0;
+		try
+		{
+			if (args.length > 1) count = Integer.parseInt(args[1]);
+			if (args.length > 2) budget = Double.parseDouble(args[2]);
+			if (count < 1 || !(budget >= 0)) throw new IllegalArgumentException();
+			for (int i = 3; i < args.length; i++)
+			{
+				getSolvers(args[i]);
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("Usage: RubiksCLSolver --alloc [count [budget [solver...]]]");
+			return 2;
+		}
+		String[] names = args.length > 3 ?
+				Arrays.copyOfRange(args, 3, args.length) : new String[] {"lbl"};
+		int status = 0;
+		for (String name : names)
+		{
+			long garbage = SolverFuzzer.getGarbage(getSolvers(name).get(), count, 0, 5);
+			if (garbage < 0)
+			{
+				System.err.println("This JVM can't measure the memory a thread allocates");
+				return 1;
+			}
+			boolean within = garbage <= budget * count;
+			System.err.printf("%-10s %d bytes in %d solves besides the solutions (%.3f for "
+					+ "each), %s the budget of %.1f for each%n", name, garbage, count,
+					(double) garbage / count, within ? "within" : "OVER", budget);
+			if (!within) status = 1;
+		}
+		return status;
+	}
+
+	/**
+	 * Get what makes the solvers with a name.
+	 * @param name lbl, twophase or optimal
+	 * @return the supplier of solvers
+	 * @throws IllegalArgumentException if no solver has the name
+	 */
+	private static Supplier<CubeSolver> getSolvers(String name)
+	{
+		switch (name)
+		{
+		case "lbl":
+			return Manipulator::new;
+		case "twophase":
+			return TwoPhaseSolver::new;
+		case "optimal":
+			return OptimalSolver::new;
+		default:
+			throw new IllegalArgumentException("Not a solver: " + name);
+		}
+	}
 }
@@ -0,0 +1,500 @@
+package mvcbase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import rubikscube.BatchSolver;
+import rubikscube.CubeSolver;
+import rubikscube.CubeState;
+import rubikscube.Facelets;
+import rubikscube.Instructions;
+import rubikscube.Manipulator;
+import rubikscube.Notation;
+import rubikscube.OptimalSolver;
+import rubikscube.Solvability;
+import rubikscube.StateFileReader;
+import rubikscube.TwoPhaseSolver;
+
+/**
+ * Solves cubes without the view, for running on machines with no display:
+ * reads cubes from a file or standard input, solves them on several threads
+ * with a BatchSolver and writes a solution for each to standard output, in
+ * the same order. A summary of how many were solved and how fast is written
+ * to standard error at the end.
+ *
+ * Input is one cube per line, as a facelet string (see Facelets) or as the
+ * moves that scramble it from solved (see Notation), or a state file (see
+ * StateFile). A solution is written on a line in notation, or as
+ * instructions with a blank line after each cube. A line or record that
+ * isn't a cube, or is one that can't be solved (see Solvability), gets
+ * "ERROR" and why, and a cube that isn't solved gets "NONE".
+ *
+ * The BatchSolver reads the input and hands on the solutions on the thread
+ * that runs it, so the errors found reading need no locking to be matched up
+ * with the solutions.
+ * @author Cathal
+ *
+ */
+public class RubiksBatchController
+{
+	public static final String USAGE = "Usage: RubiksCLSolver --batch [options] [file]\n"
+			+ "Reads cubes from the file, or standard input, and writes their "
+			+ "solutions to standard output.\n"
+			+ "  --threads N        solve on N threads (default: one per processor)\n"
+			+ "  --solver NAME      lbl, twophase or optimal (default: lbl)\n"
+			+ "  --input FORMAT     facelets, notation or binary (default: facelets)\n"
+			+ "  --output FORMAT    notation or instructions (default: notation)\n";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String solver = "lbl";
+	private String input = "facelets";
+	private String output = "notation";
+	private File file;
+
+	/**
+	 * Create a batch controller from the command line arguments after
+	 * --batch.
+	 * @param args the arguments
+	 * @throws IllegalArgumentException if the arguments can't be understood
+	 */
+	public RubiksBatchController(String[] args)
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			String arg = args[i];
+			if (!arg.startsWith("--"))
+			{
+				if (this.file != null) throw new IllegalArgumentException("Only one file");
+				this.file = new File(arg);
+				continue;
+			}
+			if (i + 1 == args.length)
+			{
+				throw new IllegalArgumentException(arg + " needs a value");
+			}
+			String value = args[++i];
+			switch (arg)
+			{
+			case "--threads":
+				try
+				{
+					this.threads = Integer.parseInt(value);
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IllegalArgumentException("Not a number of threads: " + value);
+				}
+				if (this.threads < 1) throw new IllegalArgumentException("No threads");
+				break;
+			case "--solver":
+				this.solver = checkValue(value, "lbl", "twophase", "optimal");
+				break;
+			case "--input":
+				this.input = checkValue(value, "facelets", "notation", "binary");
+				break;
+			case "--output":
+				this.output = checkValue(value, "notation", "instructions");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		if (this.input.equals("binary") && this.file == null)
+		{
+			throw new IllegalArgumentException("Binary input needs a file");
+		}
+	}
+
+	private static String checkValue(String value, String... allowed)
+	{
+		for (String option : allowed)
+		{
+			if (option.equals(value)) return value;
+		}
+		throw new IllegalArgumentException("Not one of " + String.join(", ", allowed)
+				+ ": " + value);
+	}
+
+	private Supplier<CubeSolver> getSolvers()
+	{
+		switch (this.solver)
+		{
+		case "twophase":
+			return TwoPhaseSolver::new;
+		case "optimal":
+			return OptimalSolver::new;
+		default:
+			return Manipulator::new;
+		}
+	}
+
+	/**
+	 * Solve every cube of the input.
+	 * @throws IOException if the input can't be read or the output written
+	 */
+	public void run() throws IOException
+	{
+		ArrayDeque<Long> errorIndexes = new ArrayDeque<>();
+		ArrayDeque<String> errors = new ArrayDeque<>();
+		Iterator<CubeState> states;
+		AutoCloseable in;
+		if (this.input.equals("binary"))
+		{
+			StateFileReader reader = new StateFileReader(this.file);
+			states = new FileStates(reader, errorIndexes, errors);
+			in = reader;
+		}
+		else
+		{
+			ReadableByteChannel channel = this.file == null ?
+					Channels.newChannel(System.in) :
+					FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+			BufferedReader reader = new BufferedReader(Channels.newReader(channel,
+					StandardCharsets.US_ASCII.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+			states = new LineStates(reader, this.input.equals("notation"), errorIndexes,
+					errors);
+			in = reader;
+		}
+
+		FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+		ChannelOutput out = new ChannelOutput(stdout);
+		SolutionWriter writer = new SolutionWriter(out, this.output.equals("instructions"),
+				errorIndexes, errors);
+		try (BatchSolver batch = new BatchSolver(this.getSolvers(), this.threads,
+				BatchSolver.DEFAULT_CHUNK_SIZE))
+		{
+			batch.solve(states, writer);
+			out.flush();
+			System.err.printf("Solved %d cubes in %.3f s on %d threads: %.1f cubes/s, "
+					+ "%.2f moves on average, %d errors, %d not solved%n",
+					batch.getCount(), batch.getNanos() / 1e9, this.threads,
+					batch.getCubesPerSecond(), writer.getAverageMoves(),
+					writer.errorCount, writer.unsolvedCount);
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			try
+			{
+				in.close();
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Run from the command line.
+	 * @param args the arguments after --batch
+	 * @return the exit status: 0 if all went well, 1 if the input couldn't
+	 * be read or the output written, 2 if the arguments were wrong
+	 */
+	public static int run(String[] args)
+	{
+		RubiksBatchController controller;
+		try
+		{
+			controller = new RubiksBatchController(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.print(USAGE);
+			return 2;
+		}
+		try
+		{
+			controller.run();
+			return 0;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not solve the cubes: " + e);
+			return 1;
+		}
+	}
+
+	/**
+	 * Reads a cube from each line that isn't blank. A line that isn't a cube
+	 * gives the solved cube, and its index and why are added to the errors.
+	 */
+	private static class LineStates implements Iterator<CubeState>
+	{
+		private final BufferedReader reader;
+		private final boolean notation;
+		private final ArrayDeque<Long> errorIndexes;
+		private final ArrayDeque<String> errors;
+		private final CubeState state = new CubeState();
+		private String line;
+		private long index;
+
+		private LineStates(BufferedReader reader, boolean notation,
+				ArrayDeque<Long> errorIndexes, ArrayDeque<String> errors)
+		{
+			this.reader = reader;
+			this.notation = notation;
+			this.errorIndexes = errorIndexes;
+			this.errors = errors;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			try
+			{
+				while (this.line == null)
+				{
+					String line = this.reader.readLine();
+					if (line == null) return false;
+					line = line.trim();
+					if (!line.isEmpty()) this.line = line;
+				}
+				return true;
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public CubeState next()
+		{
+			if (!this.hasNext()) throw new NoSuchElementException();
+			String error = null;
+			try
+			{
+				if (this.notation)
+				{
+					this.state.reset();
+					this.state.move(Notation.parse(this.line));
+				}
+				else
+				{
+					Facelets.decode(this.line, this.state);
+				}
+			}
+			catch (IllegalArgumentException e)
+			{
+				error = e.getMessage();
+			}
+			checkState(this.state, error, this.index++, this.errorIndexes, this.errors);
+			this.line = null;
+			return this.state;
+		}
+	}
+
+	/**
+	 * Reads the states of a state file. A record that isn't a cube state
+	 * gives the solved cube, and its index and why are added to the errors,
+	 * the same as a line that isn't a cube.
+	 */
+	private static class FileStates implements Iterator<CubeState>
+	{
+		private final StateFileReader reader;
+		private final ArrayDeque<Long> errorIndexes;
+		private final ArrayDeque<String> errors;
+		private final CubeState state = new CubeState();
+		private long index;
+
+		private FileStates(StateFileReader reader, ArrayDeque<Long> errorIndexes,
+				ArrayDeque<String> errors)
+		{
+			this.reader = reader;
+			this.errorIndexes = errorIndexes;
+			this.errors = errors;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return this.reader.hasNext();
+		}
+
+		@Override
+		public CubeState next()
+		{
+			if (!this.hasNext()) throw new NoSuchElementException();
+			String error = null;
+			try
+			{
+				this.reader.next(this.state);
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// the reader has moved on past the record
+				error = e.getMessage();
+			}
+			checkState(this.state, error, this.index++, this.errorIndexes, this.errors);
+			return this.state;
+		}
+	}
+
+	/**
+	 * Check that a state read from the input can be solved, and if not, or it
+	 * couldn't be read, set it to the solved cube and add its index and why
+	 * to the errors.
+	 * @param state the state read
+	 * @param error why the state couldn't be read, or null if it could
+	 * @param index the index of the state in the input
+	 */
+	private static void checkState(CubeState state, String error, long index,
+			ArrayDeque<Long> errorIndexes, ArrayDeque<String> errors)
+	{
+		if (error == null)
+		{
+			Solvability solvability = Solvability.check(state);
+			if (!solvability.isSolvable()) error = solvability.getMessage();
+		}
+		if (error != null)
+		{
+			state.reset();
+			errorIndexes.add(index);
+			errors.add(error);
+		}
+	}
+
+	/**
+	 * Writes each solution as it is given, in order.
+	 */
+	private static class SolutionWriter implements Consumer<byte[]>
+	{
+		private final ChannelOutput out;
+		private final boolean instructions;
+		private final ArrayDeque<Long> errorIndexes;
+		private final ArrayDeque<String> errors;
+		private long index;
+		private long moves;
+		private long solvedCount;
+		private long errorCount;
+		private long unsolvedCount;
+
+		private SolutionWriter(ChannelOutput out, boolean instructions,
+				ArrayDeque<Long> errorIndexes, ArrayDeque<String> errors)
+		{
+			this.out = out;
+			this.instructions = instructions;
+			this.errorIndexes = errorIndexes;
+			this.errors = errors;
+		}
+
+		@Override
+		public void accept(byte[] solution)
+		{
+			try
+			{
+				Long errorIndex = this.errorIndexes.peek();
+				if (errorIndex != null && errorIndex == this.index)
+				{
+					this.errorIndexes.poll();
+					this.out.append("ERROR ").append(this.errors.poll()).append('\n');
+					this.errorCount++;
+				}
+				else if (solution == null)
+				{
+					this.out.append("NONE\n");
+					this.unsolvedCount++;
+				}
+				else
+				{
+					if (this.instructions)
+					{
+						Instructions.append(solution, solution.length, this.out);
+					}
+					else
+					{
+						Notation.append(solution, solution.length, this.out);
+					}
+					this.out.append('\n');
+					this.moves += solution.length;
+					this.solvedCount++;
+				}
+				this.index++;
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private double getAverageMoves()
+		{
+			return this.solvedCount == 0 ? 0 : (double) this.moves / this.solvedCount;
+		}
+	}
+
+	/**
+	 * Writes ASCII text to a channel through a buffer.
+	 */
+	private static class ChannelOutput implements Appendable
+	{
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		private ChannelOutput(WritableByteChannel channel)
+		{
+			this.channel = channel;
+		}
+
+		@Override
+		public Appendable append(CharSequence text) throws IOException
+		{
+			return this.append(text, 0, text.length());
+		}
+
+		@Override
+		public Appendable append(CharSequence text, int start, int end) throws IOException
+		{
+			for (int i = start; i < end; i++)
+			{
+				this.append(text.charAt(i));
+			}
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) throws IOException
+		{
+			if (!this.buffer.hasRemaining()) this.flush();
+			this.buffer.put((byte) c);
+			return this;
+		}
+
+		private void flush() throws IOException
+		{
+			this.buffer.flip();
+			while (this.buffer.hasRemaining())
+			{
+				this.channel.write(this.buffer);
+			}
+			this.buffer.clear();
+		}
+	}
+}
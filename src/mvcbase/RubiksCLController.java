@@ -1,7 +1,5 @@
 package mvcbase;
 
-import javax.xml.parsers.ParserConfigurationException;
-
 public class RubiksCLController
 {
 	private RubiksSolverModel model;
@@ -25,14 +23,7 @@ public class RubiksCLController
 	
 	public void doSet(String setString)
 	{
-		try
-		{
-			this.model.setData(setString);
-		} 
-		catch (ParserConfigurationException e)
-		{
-			e.printStackTrace();
-		}
+		this.model.setData(setString);
 		this.view.clearTextField();
 	}
 	
@@ -0,0 +1,389 @@
+package mvcbase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import rubikscube.CubeSolver;
+import rubikscube.CubeState;
+import rubikscube.Facelets;
+import rubikscube.Manipulator;
+import rubikscube.Notation;
+import rubikscube.SolveCache;
+import rubikscube.Solvability;
+import rubikscube.SolverPool;
+import rubikscube.TwoPhaseSolver;
+
+/**
+ * Serves solutions over HTTP, so one solver process can be shared by many
+ * clients. The answers are JSON.
+ *
+ * GET or POST /solve?facelets=... or /solve?scramble=... solves one cube,
+ * given as a facelet string (see Facelets) or the moves that scramble it
+ * from solved (see Notation), answering {"solution": "...", "length": n}.
+ *
+ * POST /batch?input=facelets (or notation) solves a cube from each line of
+ * the body, answering {"solutions": [...]} with an answer like that of
+ * /solve for each, in order. A body of more than MAX_BODY_SIZE bytes or
+ * MAX_BATCH_CUBES cubes gets the status 413 and no solutions.
+ *
+ * Both take solver=lbl (the default) or solver=twophase. A cube that can't
+ * be read or can't be solved (see Solvability) gets {"error": "..."}, and
+ * a single one the status 400. A cube the solver finds no solution for,
+ * such as when it runs out of time, gets an error too, and a single one the
+ * status 503.
+ *
+ * Each solver keeps the solutions it found last in a SolveCache, and
+ * GET /stats answers how often each cache was used, as
+ * {"lbl": {"hits": n, "misses": n, "size": n}, ...}.
+ *
+ * Each request runs on its own virtual thread when it runs on Java 21 or
+ * later, which has them. Before that, requests run on a pool of THREADS
+ * threads, and once QUEUE_SIZE requests are waiting for one, the thread
+ * accepting connections runs the next request itself, so no more are
+ * accepted until it is done. Solvers are lent to requests from a
+ * SolverPool, so they are only made when every one is in use.
+ * @author Cathal
+ *
+ */
+public class RubiksHttpController
+{
+	public static final int DEFAULT_PORT = 8080;
+	public static final String USAGE = "Usage: RubiksCLSolver --serve [port]\n"
+			+ "Serves solutions over HTTP on the port (default: " + DEFAULT_PORT + ").\n";
+	// the most bytes in the body of a /batch request, and cubes in it
+	public static final int MAX_BODY_SIZE = 1 << 20;
+	public static final int MAX_BATCH_CUBES = 10000;
+
+	// connections waiting to be accepted
+	private static final int BACKLOG = 4096;
+	// solutions kept for each solver
+	private static final int CACHE_SIZE = 1 << 16;
+	// the threads serving requests without virtual threads, and the requests
+	// that can wait for them
+	private static final int THREADS = Runtime.getRuntime().availableProcessors() * 2;
+	private static final int QUEUE_SIZE = BACKLOG;
+
+	private final HttpServer server;
+	private final LinkedHashMap<String, SolveCache> solvers = new LinkedHashMap<>();
+
+	/**
+	 * Create a server on a port. It doesn't serve until it is started.
+	 * @param port the port to listen on
+	 * @throws IOException if the port can't be listened on
+	 */
+	public RubiksHttpController(int port) throws IOException
+	{
+		this.solvers.put("lbl", new SolveCache(new SolverPool(Manipulator::new), CACHE_SIZE));
+		this.solvers.put("twophase", new SolveCache(new SolverPool(TwoPhaseSolver::new),
+				CACHE_SIZE));
+		this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		this.server.createContext("/solve", exchange -> this.handle(exchange, false));
+		this.server.createContext("/batch", exchange -> this.handle(exchange, true));
+		this.server.createContext("/stats", this::handleStats);
+		this.server.setExecutor(createExecutor());
+	}
+
+	/**
+	 * Get an executor that starts a virtual thread for each task, or if this
+	 * Java is older than 21 and has none, a bounded pool of threads. Virtual
+	 * threads are looked up by reflection, as the build targets Java 17.
+	 */
+	private static ExecutorService createExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(QUEUE_SIZE),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+	}
+
+	public void start()
+	{
+		this.server.start();
+	}
+
+	/**
+	 * Stop serving, waiting at most a given time for requests to finish.
+	 * @param delaySeconds the time to wait
+	 */
+	public void stop(int delaySeconds)
+	{
+		this.server.stop(delaySeconds);
+	}
+
+	private void handle(HttpExchange exchange, boolean batch) throws IOException
+	{
+		try
+		{
+			String method = exchange.getRequestMethod();
+			if (!method.equals("POST") && (batch || !method.equals("GET")))
+			{
+				send(exchange, 405, "{\"error\": \"Method not allowed\"}");
+				return;
+			}
+			HashMap<String, String> parameters =
+					parseQuery(exchange.getRequestURI().getRawQuery());
+			CubeSolver solver = this.solvers.get(parameters.getOrDefault("solver", "lbl"));
+			if (solver == null)
+			{
+				send(exchange, 400, "{\"error\": \"Unknown solver\"}");
+				return;
+			}
+
+			CubeState state = new CubeState();
+			StringBuilder json = new StringBuilder();
+			if (batch)
+			{
+				boolean notation = parameters.getOrDefault("input", "facelets")
+						.equals("notation");
+				// read one byte more than allowed to tell if there are more
+				byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_SIZE + 1);
+				if (body.length > MAX_BODY_SIZE)
+				{
+					send(exchange, 413, "{\"error\": \"The body is over "
+							+ MAX_BODY_SIZE + " bytes\"}");
+					return;
+				}
+				BufferedReader reader = new BufferedReader(new InputStreamReader(
+						new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+				ArrayList<String> cubes = new ArrayList<>();
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					line = line.trim();
+					if (!line.isEmpty()) cubes.add(line);
+				}
+				if (cubes.size() > MAX_BATCH_CUBES)
+				{
+					send(exchange, 413, "{\"error\": \"There are over " + MAX_BATCH_CUBES
+							+ " cubes\"}");
+					return;
+				}
+				json.append("{\"solutions\": [");
+				for (int i = 0; i < cubes.size(); i++)
+				{
+					if (i > 0) json.append(", ");
+					solve(cubes.get(i), notation, state, solver, json);
+				}
+				json.append("]}");
+				send(exchange, 200, json.toString());
+			}
+			else
+			{
+				String facelets = parameters.get("facelets");
+				String scramble = parameters.get("scramble");
+				int status;
+				if (facelets != null)
+				{
+					status = solve(facelets, false, state, solver, json);
+				}
+				else if (scramble != null)
+				{
+					status = solve(scramble, true, state, solver, json);
+				}
+				else
+				{
+					json.append("{\"error\": \"Give facelets or scramble\"}");
+					status = 400;
+				}
+				send(exchange, status, json.toString());
+			}
+		}
+		catch (RuntimeException e)
+		{
+			send(exchange, 500, "{\"error\": " + quote(String.valueOf(e)) + "}");
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			if (!exchange.getRequestMethod().equals("GET"))
+			{
+				send(exchange, 405, "{\"error\": \"Method not allowed\"}");
+				return;
+			}
+			StringBuilder json = new StringBuilder("{");
+			for (Map.Entry<String, SolveCache> entry : this.solvers.entrySet())
+			{
+				if (json.length() > 1) json.append(", ");
+				SolveCache cache = entry.getValue();
+				json.append(quote(entry.getKey())).append(": {\"hits\": ")
+						.append(cache.getHits()).append(", \"misses\": ")
+						.append(cache.getMisses()).append(", \"size\": ")
+						.append(cache.size()).append('}');
+			}
+			send(exchange, 200, json.append('}').toString());
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Solve a cube and add its answer to some JSON.
+	 * @return the status of the answer: 200 if it was solved, 400 if it
+	 * couldn't be read or can't be solved, 503 if the solver found no
+	 * solution
+	 */
+	private static int solve(String cube, boolean notation, CubeState state,
+			CubeSolver solver, StringBuilder json)
+	{
+		try
+		{
+			if (notation)
+			{
+				state.reset();
+				state.move(Notation.parse(cube));
+			}
+			else
+			{
+				Facelets.decode(cube, state);
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			json.append("{\"error\": ").append(quote(e.getMessage())).append('}');
+			return 400;
+		}
+		Solvability solvability = Solvability.check(state);
+		if (!solvability.isSolvable())
+		{
+			json.append("{\"error\": ").append(quote(solvability.getMessage())).append('}');
+			return 400;
+		}
+		byte[] solution = solver.solve(state);
+		if (solution == null)
+		{
+			json.append("{\"error\": \"No solution found\"}");
+			return 503;
+		}
+		json.append("{\"solution\": \"");
+		try
+		{
+			Notation.append(solution, solution.length, json);
+		}
+		catch (IOException e)
+		{
+			// a StringBuilder doesn't throw
+			throw new IllegalStateException(e);
+		}
+		json.append("\", \"length\": ").append(solution.length).append('}');
+		return 200;
+	}
+
+	private static HashMap<String, String> parseQuery(String query)
+			throws UnsupportedEncodingException
+	{
+		HashMap<String, String> parameters = new HashMap<>();
+		if (query == null) return parameters;
+		for (String pair : query.split("&"))
+		{
+			int equals = pair.indexOf('=');
+			if (equals < 0) continue;
+			parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+					URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+		}
+		return parameters;
+	}
+
+	/**
+	 * Write a string as a JSON string.
+	 */
+	private static String quote(String text)
+	{
+		StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				quoted.append('\\').append(c);
+			}
+			else if (c < ' ')
+			{
+				quoted.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException
+	{
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Run from the command line, serving until the process is stopped.
+	 * @param args the arguments after --serve: the port, if not the default
+	 * @return the exit status if the server couldn't start: 1 if the port
+	 * couldn't be listened on, 2 if the arguments were wrong
+	 */
+	public static int run(String[] args)
+	{
+		int port = DEFAULT_PORT;
+		try
+		{
+			if (args.length > 1) throw new NumberFormatException();
+			if (args.length == 1) port = Integer.parseInt(args[0]);
+		}
+		catch (NumberFormatException e)
+		{
+			System.err.print(USAGE);
+			return 2;
+		}
+		try
+		{
+			new RubiksHttpController(port).start();
+			System.err.println("Serving solutions on port " + port);
+			return 0;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not serve on port " + port + ": " + e);
+			return 1;
+		}
+	}
+}
@@ -13,6 +13,8 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Text;
 import observerpattern.Publisher;
 import rubikscube.Manipulator;
+import rubikscube.PieceColours;
+import rubikscube.Solvability;
 
 public class RubiksSolverModel extends Publisher
 {
@@ -24,11 +26,8 @@ public class RubiksSolverModel extends Publisher
 	private int setArrayIndex;
 	private String solution;
 	private Manipulator manipulator;
-	private Document doc;
 	
-	private final String[] SET_STRINGS = {"wrb", "wr", "wrg", "wb", "wg", "wob",
-			"wo", "wog", "rb", "rg", "ob", "og", "yrb", "yr", "yrg", "yb", "yg", 
-			"yob", "yo", "yog"};
+	private final String[] SET_STRINGS = PieceColours.POSITIONS;
 	private final String START_INSTRUCTION = "Welcome to the Rubiks Cube Solver "
 			+ "program!";
 	private final String SET_INSTRUCTION = "Enter the colours of the Rubiks Cube"
@@ -117,9 +116,8 @@ public class RubiksSolverModel extends Publisher
 	 * the state is changed to UNSOLVED.
 	 * @param data the string of new data
 	 * (Precondition: data.equals([a value in this.getSetStrings()]))
-	 * @throws ParserConfigurationException 
 	 */
-	public void setData(String data) throws ParserConfigurationException
+	public void setData(String data)
 	{
 		this.setArray[this.setArrayIndex] = data;
 		this.setArrayIndex ++;
@@ -135,8 +133,6 @@ public class RubiksSolverModel extends Publisher
 			this.currentHelp = this.UNSOLVED_HELP;
 			this.currentInstruction = this.UNSOLVED_INSTRUCTION;
 			
-			this.createXMLStateFile();
-			
 			this.changeState(State.UNSOLVED);
 			return;
 		}
@@ -224,24 +220,24 @@ public class RubiksSolverModel extends Publisher
 
 	public void doSolve() throws Exception
 	{
-//		Random generator = new Random();
-//		int canSolve = generator.nextInt(2);
-//		if (canSolve == 0)
-//		{
-//			// the rubiks cube can't be solved:
-//			this.availableCommands.clear();
-//			this.availableCommands.add(Command.RESET);
-//			this.availableCommands.add(Command.HELP);
-//			this.availableCommands.add(Command.EXIT);
-//			
-//			this.currentHelp = this.CANTSOLVE_HELP;
-//			this.currentInstruction = this.CANTSOLVE_INSTRUCTION;
-//			
-//			this.changeState(State.CANTSOLVE);
-//		}
+		Solvability solvability = Solvability.check(this.setArray);
+		if (!solvability.isSolvable())
+		{
+			// the rubiks cube can't be solved:
+			this.availableCommands.clear();
+			this.availableCommands.add(Command.RESET);
+			this.availableCommands.add(Command.HELP);
+			this.availableCommands.add(Command.EXIT);
+			
+			this.currentHelp = this.CANTSOLVE_HELP;
+			this.currentInstruction = this.CANTSOLVE_INSTRUCTION + " "
+					+ solvability.getMessage();
+			
+			this.changeState(State.CANTSOLVE);
+			return;
+		}
 		
-//		this.manipulator.solve("C:\\Users\\Cathal\\Documents\\doc");
-		this.manipulator.solve(doc);
+		this.manipulator.solve(this.setArray);
 		// the rubiks cube can be solved:
 		this.availableCommands.clear();
 		this.availableCommands.add(Command.SOLUTION);
@@ -289,11 +285,18 @@ public class RubiksSolverModel extends Publisher
 		}
 	}
 	
-	private void createXMLStateFile() throws ParserConfigurationException
+	/**
+	 * Export the pieces set so far as a rubiks cube xml document, which the
+	 * Manipulator can solve (see rubikscube.CubeXMLReader).
+	 * (Precondition: all 20 pieces are set)
+	 * @return the document
+	 * @throws ParserConfigurationException
+	 */
+	public Document createXMLState() throws ParserConfigurationException
 	{
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder builder = factory.newDocumentBuilder();
-		this.doc = builder.newDocument();
+		Document doc = builder.newDocument();
 		Element rubiksCubeElement = doc.createElement("rubikscube");
 		
 		// create piece elements
@@ -408,5 +411,6 @@ public class RubiksSolverModel extends Publisher
 //			e.printStackTrace();
 //		}
 		
+		return doc;
 	}
 }
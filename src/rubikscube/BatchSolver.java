@@ -0,0 +1,240 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Solves many cube states on several threads, giving the solutions back in
+ * the order of the states.
+ *
+ * States are read a chunk at a time into states kept by the batch solver, so
+ * a source may give the same CubeState each time, and a batch of any size
+ * only needs the memory of two chunks. The threads take states from one
+ * chunk until it is solved, and meanwhile the calling thread hands on the
+ * solutions of the chunk before, in order, and reads the next chunk into
+ * the other. Reading and handing on are only ever done on the calling
+ * thread.
+ *
+ * Each thread makes its own solver from the supplier the first time it needs
+ * one and keeps it for the life of the batch solver.
+ *
+ * The count, time and cubes per second of the last batch are kept, so a
+ * batch solver should only solve one batch at a time.
+ * @author Cathal
+ *
+ */
+public class BatchSolver implements AutoCloseable
+{
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private final ExecutorService executor;
+	private final ThreadLocal<CubeSolver> solvers;
+	private final int threads;
+	// two of each, so one chunk is solved while the other is read
+	private final CubeState[][] chunks = new CubeState[2][];
+	private final byte[][][] solutions = new byte[2][][];
+
+	private long count;
+	private long nanos;
+
+	/**
+	 * Create a batch solver with a thread for each processor.
+	 * @param solvers makes a solver for each thread
+	 */
+	public BatchSolver(Supplier<? extends CubeSolver> solvers)
+	{
+		this(solvers, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a batch solver.
+	 * (Precondition: threads and chunkSize are more than 0)
+	 * @param solvers makes a solver for each thread
+	 * @param threads the number of threads to solve on
+	 * @param chunkSize the number of states read at a time
+	 */
+	public BatchSolver(Supplier<? extends CubeSolver> solvers, int threads, int chunkSize)
+	{
+		this.executor = Executors.newFixedThreadPool(threads, runnable ->
+		{
+			Thread thread = new Thread(runnable, "BatchSolver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.solvers = ThreadLocal.withInitial(solvers);
+		this.threads = threads;
+		for (int buffer = 0; buffer < 2; buffer++)
+		{
+			this.chunks[buffer] = new CubeState[chunkSize];
+			this.solutions[buffer] = new byte[chunkSize][];
+			for (int i = 0; i < chunkSize; i++)
+			{
+				this.chunks[buffer][i] = new CubeState();
+			}
+		}
+	}
+
+	/**
+	 * Solve a stream of states.
+	 * @param states the states to solve
+	 * @param results given each solution, or null where none was found, in
+	 * the order of the states
+	 * @return the number of states solved
+	 */
+	public long solve(Stream<CubeState> states, Consumer<byte[]> results)
+	{
+		return this.solve(states.iterator(), results);
+	}
+
+	/**
+	 * Solve the states of an iterator.
+	 * @param states the states to solve
+	 * @param results given each solution, or null where none was found, in
+	 * the order of the states
+	 * @return the number of states solved
+	 */
+	public long solve(Iterator<CubeState> states, Consumer<byte[]> results)
+	{
+		long start = System.nanoTime();
+		this.count = 0;
+		int current = 0;
+		int size = this.readChunk(states, this.chunks[current]);
+		int handedSize = 0;
+		while (size > 0)
+		{
+			ArrayList<Future<Void>> solving = this.startChunk(current, size);
+			int other = 1 - current;
+			int nextSize;
+			try
+			{
+				// while this chunk is solved, hand on the last one, then read
+				// the next into the buffers it leaves free
+				this.handOn(other, handedSize, results);
+				nextSize = this.readChunk(states, this.chunks[other]);
+			}
+			catch (RuntimeException | Error e)
+			{
+				for (Future<Void> future : solving)
+				{
+					future.cancel(true);
+				}
+				throw e;
+			}
+			this.await(solving);
+			this.count += size;
+			handedSize = size;
+			size = nextSize;
+			current = other;
+		}
+		this.handOn(1 - current, handedSize, results);
+		this.nanos = System.nanoTime() - start;
+		return this.count;
+	}
+
+	private int readChunk(Iterator<CubeState> states, CubeState[] chunk)
+	{
+		int size = 0;
+		while (size < chunk.length && states.hasNext())
+		{
+			chunk[size++].copyFrom(states.next());
+		}
+		return size;
+	}
+
+	private void handOn(int buffer, int size, Consumer<byte[]> results)
+	{
+		byte[][] solutions = this.solutions[buffer];
+		for (int i = 0; i < size; i++)
+		{
+			results.accept(solutions[i]);
+			solutions[i] = null;
+		}
+	}
+
+	private ArrayList<Future<Void>> startChunk(int buffer, final int size)
+	{
+		final CubeState[] chunk = this.chunks[buffer];
+		final byte[][] solutions = this.solutions[buffer];
+		final AtomicInteger next = new AtomicInteger();
+		Callable<Void> worker = () ->
+		{
+			CubeSolver solver = this.solvers.get();
+			for (int i = next.getAndIncrement(); i < size; i = next.getAndIncrement())
+			{
+				solutions[i] = solver.solve(chunk[i]);
+			}
+			return null;
+		};
+		ArrayList<Future<Void>> solving = new ArrayList<>();
+		for (int i = 0; i < Math.min(this.threads, size); i++)
+		{
+			solving.add(this.executor.submit(worker));
+		}
+		return solving;
+	}
+
+	private void await(ArrayList<Future<Void>> solving)
+	{
+		try
+		{
+			for (Future<Void> future : solving)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("A solver failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Get the number of states solved in the last batch.
+	 * @return the count
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Get how long the last batch took.
+	 * @return the time in nanoseconds
+	 */
+	public long getNanos()
+	{
+		return this.nanos;
+	}
+
+	/**
+	 * Get the throughput of the last batch.
+	 * @return the states solved per second
+	 */
+	public double getCubesPerSecond()
+	{
+		return this.nanos == 0 ? 0 : this.count * 1e9 / this.nanos;
+	}
+
+	/**
+	 * Stop the threads. The batch solver can't be used after.
+	 */
+	@Override
+	public void close()
+	{
+		this.executor.shutdown();
+	}
+}
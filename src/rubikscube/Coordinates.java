@@ -0,0 +1,271 @@
+package rubikscube;
+
+/**
+ * Coordinates number parts of a cube state so that move and pruning tables
+ * can be indexed by them. Each coordinate has a get method, which reads it
+ * from a state, and a set method, which changes a state to have it. The set
+ * methods leave every piece the coordinate doesn't describe at home.
+ *
+ * The slice edges are the four edges between the top and the bottom,
+ * FIRST_SLICE_EDGE to EDGE_COUNT - 1. The top and bottom edges are the
+ * other eight.
+ * @author Cathal
+ *
+ */
+public class Coordinates
+{
+	public static final int TWIST_COUNT = 2187;            // 3^7
+	public static final int FLIP_COUNT = 2048;             // 2^11
+	public static final int SLICE_COUNT = 495;             // 12 choose 4
+	public static final int CORNER_PERMUTATION_COUNT = 40320;    // 8!
+	public static final int EDGE8_PERMUTATION_COUNT = 40320;     // 8!
+	public static final int SLICE_PERMUTATION_COUNT = 24;        // 4!
+
+	public static final int FIRST_SLICE_EDGE = 8;
+
+	private static final int[][] CHOOSE = new int[CubeState.EDGE_COUNT][5];
+
+	static
+	{
+		for (int n = 0; n < CubeState.EDGE_COUNT; n++)
+		{
+			CHOOSE[n][0] = 1;
+			for (int k = 1; k < 5; k++)
+			{
+				CHOOSE[n][k] = n == 0 ? 0 : CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+			}
+		}
+	}
+
+	/**
+	 * Get the twist of the corners. The twist of the last corner is fixed by
+	 * the others, so it is left out.
+	 * @param state the state to read
+	 * @return the twist, from 0 to TWIST_COUNT - 1, 0 when solved
+	 */
+	public static int getTwist(CubeState state)
+	{
+		int twist = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT - 1; position++)
+		{
+			twist = twist * 3 +
+					state.getCornerOrientation(state.getCornerAt(position));
+		}
+		return twist;
+	}
+
+	public static void setTwist(CubeState state, int twist)
+	{
+		int sum = 0;
+		for (int position = CubeState.CORNER_COUNT - 2; position >= 0; position--)
+		{
+			int orientation = twist % 3;
+			state.setCorner(position, position, orientation);
+			sum += orientation;
+			twist /= 3;
+		}
+		int last = CubeState.CORNER_COUNT - 1;
+		state.setCorner(last, last, (3 - sum % 3) % 3);
+	}
+
+	/**
+	 * Get the flip of the edges. The flip of the last edge is fixed by the
+	 * others, so it is left out.
+	 * @param state the state to read
+	 * @return the flip, from 0 to FLIP_COUNT - 1, 0 when solved
+	 */
+	public static int getFlip(CubeState state)
+	{
+		int flip = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT - 1; position++)
+		{
+			flip = flip * 2 + state.getEdgeOrientation(state.getEdgeAt(position));
+		}
+		return flip;
+	}
+
+	public static void setFlip(CubeState state, int flip)
+	{
+		int sum = 0;
+		for (int position = CubeState.EDGE_COUNT - 2; position >= 0; position--)
+		{
+			int orientation = flip & 1;
+			state.setEdge(position, position, orientation);
+			sum += orientation;
+			flip >>= 1;
+		}
+		int last = CubeState.EDGE_COUNT - 1;
+		state.setEdge(last, last, sum & 1);
+	}
+
+	/**
+	 * Get which four positions the slice edges are at, ignoring their order.
+	 * @param state the state to read
+	 * @return the slice coordinate, from 0 to SLICE_COUNT - 1, 0 when solved
+	 */
+	public static int getSlice(CubeState state)
+	{
+		int slice = 0;
+		int found = 0;
+		for (int position = CubeState.EDGE_COUNT - 1; position >= 0; position--)
+		{
+			if (state.getEdgeAt(position) >= FIRST_SLICE_EDGE)
+			{
+				found++;
+				slice += CHOOSE[CubeState.EDGE_COUNT - 1 - position][found];
+			}
+		}
+		return slice;
+	}
+
+	public static void setSlice(CubeState state, int slice)
+	{
+		boolean[] sliceAt = new boolean[CubeState.EDGE_COUNT];
+		for (int found = 4; found > 0; found--)
+		{
+			int distance = found - 1;
+			while (distance + 1 < CubeState.EDGE_COUNT &&
+					CHOOSE[distance + 1][found] <= slice)
+			{
+				distance++;
+			}
+			slice -= CHOOSE[distance][found];
+			sliceAt[CubeState.EDGE_COUNT - 1 - distance] = true;
+		}
+		int sliceEdge = FIRST_SLICE_EDGE;
+		int otherEdge = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int edge = sliceAt[position] ? sliceEdge++ : otherEdge++;
+			state.setEdge(edge, position, 0);
+		}
+	}
+
+	/**
+	 * Get the permutation of the corners.
+	 * @param state the state to read
+	 * @return the permutation, from 0 to CORNER_PERMUTATION_COUNT - 1, 0 when
+	 * solved
+	 */
+	public static int getCornerPermutation(CubeState state)
+	{
+		int rank = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int cubie = state.getCornerAt(position);
+			int smaller = 0;
+			for (int later = position + 1; later < CubeState.CORNER_COUNT; later++)
+			{
+				if (state.getCornerAt(later) < cubie) smaller++;
+			}
+			rank = rank * (CubeState.CORNER_COUNT - position) + smaller;
+		}
+		return rank;
+	}
+
+	public static void setCornerPermutation(CubeState state, int rank)
+	{
+		int[] cubies = new int[CubeState.CORNER_COUNT];
+		unrank(rank, cubies);
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			state.setCorner(cubies[position], position, 0);
+		}
+	}
+
+	/**
+	 * Get the permutation of the top and bottom edges.
+	 * (Precondition: the slice edges are in the slice)
+	 * @param state the state to read
+	 * @return the permutation, from 0 to EDGE8_PERMUTATION_COUNT - 1, 0 when
+	 * solved
+	 */
+	public static int getEdge8Permutation(CubeState state)
+	{
+		int rank = 0;
+		for (int position = 0; position < FIRST_SLICE_EDGE; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			int smaller = 0;
+			for (int later = position + 1; later < FIRST_SLICE_EDGE; later++)
+			{
+				if (state.getEdgeAt(later) < cubie) smaller++;
+			}
+			rank = rank * (FIRST_SLICE_EDGE - position) + smaller;
+		}
+		return rank;
+	}
+
+	public static void setEdge8Permutation(CubeState state, int rank)
+	{
+		int[] cubies = new int[FIRST_SLICE_EDGE];
+		unrank(rank, cubies);
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = position < FIRST_SLICE_EDGE ? cubies[position] : position;
+			state.setEdge(cubie, position, 0);
+		}
+	}
+
+	/**
+	 * Get the permutation of the slice edges.
+	 * (Precondition: the slice edges are in the slice)
+	 * @param state the state to read
+	 * @return the permutation, from 0 to SLICE_PERMUTATION_COUNT - 1, 0 when
+	 * solved
+	 */
+	public static int getSlicePermutation(CubeState state)
+	{
+		int rank = 0;
+		for (int position = FIRST_SLICE_EDGE; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			int smaller = 0;
+			for (int later = position + 1; later < CubeState.EDGE_COUNT; later++)
+			{
+				if (state.getEdgeAt(later) < cubie) smaller++;
+			}
+			rank = rank * (CubeState.EDGE_COUNT - position) + smaller;
+		}
+		return rank;
+	}
+
+	public static void setSlicePermutation(CubeState state, int rank)
+	{
+		int[] cubies = new int[CubeState.EDGE_COUNT - FIRST_SLICE_EDGE];
+		unrank(rank, cubies);
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = position < FIRST_SLICE_EDGE ? position :
+				cubies[position - FIRST_SLICE_EDGE] + FIRST_SLICE_EDGE;
+			state.setEdge(cubie, position, 0);
+		}
+	}
+
+	/**
+	 * Fill an array with the permutation of 0 to length - 1 with a given rank.
+	 */
+	private static void unrank(int rank, int[] permutation)
+	{
+		int length = permutation.length;
+		int[] digits = new int[length];
+		for (int i = length - 1; i >= 0; i--)
+		{
+			digits[i] = rank % (length - i);
+			rank /= length - i;
+		}
+		boolean[] used = new boolean[length];
+		for (int i = 0; i < length; i++)
+		{
+			int skip = digits[i];
+			int value = 0;
+			while (used[value] || skip > 0)
+			{
+				if (!used[value]) skip--;
+				value++;
+			}
+			used[value] = true;
+			permutation[i] = value;
+		}
+	}
+}
@@ -27,4 +27,16 @@ public class Corner extends Piece
 	{
 		super(sides, currentSides);
 	}
+	
+	/**
+	 * Create a corner piece that is a view over a cubie of a cube state.
+	 * (Precondition: sides.length == 3)
+	 * @param sides the destination sides of the faces
+	 * @param state the state the cubie is in
+	 * @param cubie the corner cubie of the piece
+	 */
+	Corner(Side[] sides, CubeState state, int cubie)
+	{
+		super(sides, state, cubie);
+	}
 }
@@ -0,0 +1,18 @@
+package rubikscube;
+
+/**
+ * Something that solves cube states. A solver may keep its search state in
+ * its fields, so unless it says otherwise each thread needs its own.
+ * @author Cathal
+ *
+ */
+public interface CubeSolver
+{
+	/**
+	 * Solve a cube state.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex), or null if no solution was found
+	 */
+	byte[] solve(CubeState state);
+}
@@ -0,0 +1,741 @@
+package rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The packed state of a rubiks cube. Each of the 8 corners and 12 edges is a
+ * cubie with a home position; the state records the position each cubie is
+ * at and how far it is twisted (corners) or flipped (edges) there.
+ * Cubie i belongs at position i, and positions are numbered as in
+ * CORNER_SIDES and EDGE_SIDES.
+ *
+ * A cubie's faces are numbered in the same order as the sides of its home
+ * position. A cubie with orientation o at a position has its face n on side
+ * (n + o) of that position, so orientation 0 everywhere means every face is
+ * on its destination side when every cubie is at home.
+ *
+ * The 18 face turns (6 sides, turned 1, 2 or 3 times clockwise) are applied
+ * from precomputed tables, without looking at any Face objects.
+ *
+ * A state keeps a 64 bit Zobrist hash of itself: a random key for each
+ * cubie at each position with each orientation, all xored together. A move
+ * changes it by the keys of the cubies it moves only, so states can be put
+ * in maps and sets without hashing every cubie each time, as long as they
+ * aren't changed while they are in them.
+ * @author Cathal
+ *
+ */
+public class CubeState
+{
+	public static final int CORNER_COUNT = 8;
+	public static final int EDGE_COUNT = 12;
+	public static final int MOVE_COUNT = 18;
+
+	/**
+	 * The sides of each corner position, top or bottom first, then clockwise
+	 * looking at the corner from outside the cube. The order matters: a face
+	 * turn moves a corner's faces around its sides in the same cyclic order.
+	 */
+	static final Side[][] CORNER_SIDES =
+		{{Side.TOP,    Side.FRONT, Side.LEFT},
+		 {Side.TOP,    Side.RIGHT, Side.FRONT},
+		 {Side.TOP,    Side.LEFT,  Side.BACK},
+		 {Side.TOP,    Side.BACK,  Side.RIGHT},
+		 {Side.BOTTOM, Side.LEFT,  Side.FRONT},
+		 {Side.BOTTOM, Side.FRONT, Side.RIGHT},
+		 {Side.BOTTOM, Side.BACK,  Side.LEFT},
+		 {Side.BOTTOM, Side.RIGHT, Side.BACK}
+		 };
+
+	/**
+	 * The sides of each edge position, top or bottom first, otherwise front
+	 * or back first. Same positions as RubiksCube.EDGE_POSITIONS.
+	 */
+	static final Side[][] EDGE_SIDES =
+		{{Side.TOP,    Side.FRONT},
+		 {Side.TOP,    Side.BACK},
+		 {Side.TOP,    Side.LEFT},
+		 {Side.TOP,    Side.RIGHT},
+		 {Side.BOTTOM, Side.FRONT},
+		 {Side.BOTTOM, Side.BACK},
+		 {Side.BOTTOM, Side.LEFT},
+		 {Side.BOTTOM, Side.RIGHT},
+		 {Side.FRONT,  Side.LEFT},
+		 {Side.FRONT,  Side.RIGHT},
+		 {Side.BACK,   Side.LEFT},
+		 {Side.BACK,   Side.RIGHT}
+		};
+
+	/**
+	 * Where a quarter turn clockwise of a side sends each of the six sides,
+	 * indexed by [turned side][side].
+	 */
+	static final Side[][] QUARTER_TURNS = new Side[6][];
+
+	// indexed by [move][position]: where the cubie at position goes, and
+	// how much its orientation changes on the way
+	private static final byte[][] CORNER_MOVE_POSITION = new byte[MOVE_COUNT][CORNER_COUNT];
+	private static final byte[][] CORNER_MOVE_TWIST = new byte[MOVE_COUNT][CORNER_COUNT];
+	private static final byte[][] EDGE_MOVE_POSITION = new byte[MOVE_COUNT][EDGE_COUNT];
+	private static final byte[][] EDGE_MOVE_FLIP = new byte[MOVE_COUNT][EDGE_COUNT];
+	// indexed by [move]: the four positions on the turned side
+	private static final byte[][] CORNER_MOVE_CYCLE = new byte[MOVE_COUNT][4];
+	private static final byte[][] EDGE_MOVE_CYCLE = new byte[MOVE_COUNT][4];
+	// indexed by [position][side]: the slot of a side at a position, or -1
+	// if the position isn't on that side
+	private static final byte[][] CORNER_SLOT = new byte[CORNER_COUNT][6];
+	private static final byte[][] EDGE_SLOT = new byte[EDGE_COUNT][6];
+
+	private static final Side[] SIDES = Side.values();
+
+	// indexed by [cubie][position * 3 + twist] and [cubie][position * 2 + flip]
+	private static final long[][] CORNER_KEYS = new long[CORNER_COUNT][CORNER_COUNT * 3];
+	private static final long[][] EDGE_KEYS = new long[EDGE_COUNT][EDGE_COUNT * 2];
+	private static final long SOLVED_HASH;
+
+	static
+	{
+		QUARTER_TURNS[Side.TOP.ordinal()] = turn(Side.FRONT, Side.LEFT,
+				Side.BACK, Side.RIGHT);
+		QUARTER_TURNS[Side.BOTTOM.ordinal()] = turn(Side.FRONT,
+				Side.RIGHT, Side.BACK, Side.LEFT);
+		QUARTER_TURNS[Side.RIGHT.ordinal()] = turn(Side.TOP, Side.BACK,
+				Side.BOTTOM, Side.FRONT);
+		QUARTER_TURNS[Side.LEFT.ordinal()] = turn(Side.TOP, Side.FRONT,
+				Side.BOTTOM, Side.BACK);
+		QUARTER_TURNS[Side.FRONT.ordinal()] = turn(Side.TOP, Side.RIGHT,
+				Side.BOTTOM, Side.LEFT);
+		QUARTER_TURNS[Side.BACK.ordinal()] = turn(Side.TOP, Side.LEFT,
+				Side.BOTTOM, Side.RIGHT);
+
+		for (Side side : SIDES)
+		{
+			int quarter = moveIndex(side, 1);
+			buildQuarterTurn(CORNER_SIDES, side, CORNER_MOVE_POSITION[quarter],
+					CORNER_MOVE_TWIST[quarter]);
+			buildQuarterTurn(EDGE_SIDES, side, EDGE_MOVE_POSITION[quarter],
+					EDGE_MOVE_FLIP[quarter]);
+			for (int amount = 2; amount <= 3; amount++)
+			{
+				int move = moveIndex(side, amount);
+				compose(CORNER_MOVE_POSITION[move - 1], CORNER_MOVE_TWIST[move - 1],
+						CORNER_MOVE_POSITION[quarter], CORNER_MOVE_TWIST[quarter], 3,
+						CORNER_MOVE_POSITION[move], CORNER_MOVE_TWIST[move]);
+				compose(EDGE_MOVE_POSITION[move - 1], EDGE_MOVE_FLIP[move - 1],
+						EDGE_MOVE_POSITION[quarter], EDGE_MOVE_FLIP[quarter], 2,
+						EDGE_MOVE_POSITION[move], EDGE_MOVE_FLIP[move]);
+			}
+			for (int amount = 1; amount <= 3; amount++)
+			{
+				int move = moveIndex(side, amount);
+				onSide(CORNER_SIDES, side, CORNER_MOVE_CYCLE[move]);
+				onSide(EDGE_SIDES, side, EDGE_MOVE_CYCLE[move]);
+			}
+		}
+
+		for (Side side : SIDES)
+		{
+			for (int position = 0; position < CORNER_COUNT; position++)
+			{
+				CORNER_SLOT[position][side.ordinal()] =
+						(byte) indexOf(CORNER_SIDES[position], side);
+			}
+			for (int position = 0; position < EDGE_COUNT; position++)
+			{
+				EDGE_SLOT[position][side.ordinal()] =
+						(byte) indexOf(EDGE_SIDES[position], side);
+			}
+		}
+
+		// a fixed seed, so that hashes are the same every run
+		Random random = new Random(0x5EED_CAFEL);
+		long solved = 0;
+		for (int cubie = 0; cubie < CORNER_COUNT; cubie++)
+		{
+			for (int i = 0; i < CORNER_KEYS[cubie].length; i++)
+			{
+				CORNER_KEYS[cubie][i] = random.nextLong();
+			}
+			solved ^= CORNER_KEYS[cubie][cubie * 3];
+		}
+		for (int cubie = 0; cubie < EDGE_COUNT; cubie++)
+		{
+			for (int i = 0; i < EDGE_KEYS[cubie].length; i++)
+			{
+				EDGE_KEYS[cubie][i] = random.nextLong();
+			}
+			solved ^= EDGE_KEYS[cubie][cubie * 2];
+		}
+		SOLVED_HASH = solved;
+	}
+
+	private final byte[] cornerPosition = new byte[CORNER_COUNT];
+	private final byte[] cornerOrientation = new byte[CORNER_COUNT];
+	private final byte[] cornerAt = new byte[CORNER_COUNT];
+	private final byte[] edgePosition = new byte[EDGE_COUNT];
+	private final byte[] edgeOrientation = new byte[EDGE_COUNT];
+	private final byte[] edgeAt = new byte[EDGE_COUNT];
+	private long hash;
+
+	/**
+	 * Create a cube state in the solved state.
+	 */
+	public CubeState()
+	{
+		this.reset();
+	}
+
+	/**
+	 * Create a copy of another cube state.
+	 * @param other the state to copy
+	 */
+	public CubeState(CubeState other)
+	{
+		this.copyFrom(other);
+	}
+
+	/**
+	 * Put every cubie back at its home position with orientation 0.
+	 */
+	public void reset()
+	{
+		for (byte i = 0; i < CORNER_COUNT; i++)
+		{
+			this.cornerPosition[i] = i;
+			this.cornerOrientation[i] = 0;
+			this.cornerAt[i] = i;
+		}
+		for (byte i = 0; i < EDGE_COUNT; i++)
+		{
+			this.edgePosition[i] = i;
+			this.edgeOrientation[i] = 0;
+			this.edgeAt[i] = i;
+		}
+		this.hash = SOLVED_HASH;
+	}
+
+	/**
+	 * Make this state the same as another.
+	 * @param other the state to copy
+	 */
+	public void copyFrom(CubeState other)
+	{
+		System.arraycopy(other.cornerPosition, 0, this.cornerPosition, 0, CORNER_COUNT);
+		System.arraycopy(other.cornerOrientation, 0, this.cornerOrientation, 0, CORNER_COUNT);
+		System.arraycopy(other.cornerAt, 0, this.cornerAt, 0, CORNER_COUNT);
+		System.arraycopy(other.edgePosition, 0, this.edgePosition, 0, EDGE_COUNT);
+		System.arraycopy(other.edgeOrientation, 0, this.edgeOrientation, 0, EDGE_COUNT);
+		System.arraycopy(other.edgeAt, 0, this.edgeAt, 0, EDGE_COUNT);
+		this.hash = other.hash;
+	}
+
+	/**
+	 * Get the index of a move.
+	 * (Precondition: 1 <= amount <= 3)
+	 * @param side the side to rotate
+	 * @param amount the amount of times to rotate it 90 degrees clockwise
+	 * @return the move index, from 0 to MOVE_COUNT - 1
+	 */
+	public static int moveIndex(Side side, int amount)
+	{
+		return side.ordinal() * 3 + amount - 1;
+	}
+
+	/**
+	 * Get the side a move rotates.
+	 * @param move the move index
+	 * @return the side of the move
+	 */
+	public static Side moveSide(int move)
+	{
+		return SIDES[move / 3];
+	}
+
+	/**
+	 * Get the amount of 90 degree clockwise turns in a move.
+	 * @param move the move index
+	 * @return 1, 2 or 3
+	 */
+	public static int moveAmount(int move)
+	{
+		return move % 3 + 1;
+	}
+
+	/**
+	 * Apply a move to the state. Only the four corners and four edges on the
+	 * turned side are touched.
+	 * @param move the move index, from 0 to MOVE_COUNT - 1
+	 */
+	public void move(int move)
+	{
+		byte[] positions = CORNER_MOVE_CYCLE[move];
+		int a = this.cornerAt[positions[0]];
+		int b = this.cornerAt[positions[1]];
+		int c = this.cornerAt[positions[2]];
+		int d = this.cornerAt[positions[3]];
+		this.moveCorner(a, move);
+		this.moveCorner(b, move);
+		this.moveCorner(c, move);
+		this.moveCorner(d, move);
+
+		positions = EDGE_MOVE_CYCLE[move];
+		a = this.edgeAt[positions[0]];
+		b = this.edgeAt[positions[1]];
+		c = this.edgeAt[positions[2]];
+		d = this.edgeAt[positions[3]];
+		this.moveEdge(a, move);
+		this.moveEdge(b, move);
+		this.moveEdge(c, move);
+		this.moveEdge(d, move);
+	}
+
+	private void moveCorner(int cubie, int move)
+	{
+		int position = this.cornerPosition[cubie];
+		byte moved = CORNER_MOVE_POSITION[move][position];
+		long[] keys = CORNER_KEYS[cubie];
+		this.hash ^= keys[position * 3 + this.cornerOrientation[cubie]];
+		this.cornerPosition[cubie] = moved;
+		this.cornerOrientation[cubie] = (byte) ((this.cornerOrientation[cubie] +
+				CORNER_MOVE_TWIST[move][position]) % 3);
+		this.cornerAt[moved] = (byte) cubie;
+		this.hash ^= keys[moved * 3 + this.cornerOrientation[cubie]];
+	}
+
+	private void moveEdge(int cubie, int move)
+	{
+		int position = this.edgePosition[cubie];
+		byte moved = EDGE_MOVE_POSITION[move][position];
+		long[] keys = EDGE_KEYS[cubie];
+		this.hash ^= keys[position * 2 + this.edgeOrientation[cubie]];
+		this.edgePosition[cubie] = moved;
+		this.edgeOrientation[cubie] ^= EDGE_MOVE_FLIP[move][position];
+		this.edgeAt[moved] = (byte) cubie;
+		this.hash ^= keys[moved * 2 + this.edgeOrientation[cubie]];
+	}
+
+	/**
+	 * Get the position a move sends an edge at a position to.
+	 * @param move the move index
+	 * @param position the edge position before the move
+	 * @return the edge position after the move
+	 */
+	static int edgeMovePosition(int move, int position)
+	{
+		return EDGE_MOVE_POSITION[move][position];
+	}
+
+	/**
+	 * Does a move flip an edge at a position?
+	 * @param move the move index
+	 * @param position the edge position before the move
+	 * @return 1 if the edge is flipped, 0 if not
+	 */
+	static int edgeMoveFlip(int move, int position)
+	{
+		return EDGE_MOVE_FLIP[move][position];
+	}
+
+	/**
+	 * Rotate a side through 90 degrees clockwise a given amount of times.
+	 * @param side the side to rotate
+	 * @param amount the amount of times to rotate it, any amount is allowed
+	 */
+	public void move(Side side, int amount)
+	{
+		amount = amount & 3;
+		if (amount != 0)
+		{
+			this.move(moveIndex(side, amount));
+		}
+	}
+
+	/**
+	 * Apply a list of moves to the state, one at a time.
+	 * @param moves the move indices
+	 */
+	public void move(byte[] moves)
+	{
+		for (byte move : moves)
+		{
+			this.move(move);
+		}
+	}
+
+	/**
+	 * Apply the moves that take the solved state to another state. Any
+	 * number of moves compiled into one state (see Notation.compile) are
+	 * applied in one go, each cubie moving to where the cubie that started
+	 * at its position ends up and turning as much as it did.
+	 * (Precondition: moves is not this state)
+	 * @param moves the state the moves take the solved state to
+	 */
+	public void apply(CubeState moves)
+	{
+		long hash = 0;
+		for (int cubie = 0; cubie < CORNER_COUNT; cubie++)
+		{
+			int position = this.cornerPosition[cubie];
+			byte moved = moves.cornerPosition[position];
+			this.cornerPosition[cubie] = moved;
+			this.cornerOrientation[cubie] = (byte) ((this.cornerOrientation[cubie] +
+					moves.cornerOrientation[position]) % 3);
+			hash ^= CORNER_KEYS[cubie][moved * 3 + this.cornerOrientation[cubie]];
+		}
+		for (int cubie = 0; cubie < EDGE_COUNT; cubie++)
+		{
+			int position = this.edgePosition[cubie];
+			byte moved = moves.edgePosition[position];
+			this.edgePosition[cubie] = moved;
+			this.edgeOrientation[cubie] ^= moves.edgeOrientation[position];
+			hash ^= EDGE_KEYS[cubie][moved * 2 + this.edgeOrientation[cubie]];
+		}
+		this.hash = hash;
+		for (byte cubie = 0; cubie < CORNER_COUNT; cubie++)
+		{
+			this.cornerAt[this.cornerPosition[cubie]] = cubie;
+		}
+		for (byte cubie = 0; cubie < EDGE_COUNT; cubie++)
+		{
+			this.edgeAt[this.edgePosition[cubie]] = cubie;
+		}
+	}
+
+	/**
+	 * Is every cubie at its home position with orientation 0?
+	 * @return true if the cube is solved
+	 */
+	public boolean isSolved()
+	{
+		for (int i = 0; i < CORNER_COUNT; i++)
+		{
+			if (this.cornerAt[i] != i || this.cornerOrientation[i] != 0) return false;
+		}
+		for (int i = 0; i < EDGE_COUNT; i++)
+		{
+			if (this.edgeAt[i] != i || this.edgeOrientation[i] != 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get the Zobrist hash of the state, which is kept up to date as the
+	 * state changes. Equal states have equal hashes.
+	 * @return the hash
+	 */
+	public long getHash()
+	{
+		return this.hash;
+	}
+
+	/**
+	 * Is another object a state with every cubie at the same position with
+	 * the same orientation?
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other) return true;
+		if (!(other instanceof CubeState)) return false;
+		CubeState state = (CubeState) other;
+		return this.hash == state.hash
+				&& Arrays.equals(this.cornerPosition, state.cornerPosition)
+				&& Arrays.equals(this.cornerOrientation, state.cornerOrientation)
+				&& Arrays.equals(this.edgePosition, state.edgePosition)
+				&& Arrays.equals(this.edgeOrientation, state.edgeOrientation);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(this.hash);
+	}
+
+	public int getCornerPosition(int cubie)
+	{
+		return this.cornerPosition[cubie];
+	}
+
+	public int getCornerOrientation(int cubie)
+	{
+		return this.cornerOrientation[cubie];
+	}
+
+	/**
+	 * Get the corner cubie at a position.
+	 * @param position the corner position
+	 * @return the cubie at that position
+	 */
+	public int getCornerAt(int position)
+	{
+		return this.cornerAt[position];
+	}
+
+	public int getEdgePosition(int cubie)
+	{
+		return this.edgePosition[cubie];
+	}
+
+	public int getEdgeOrientation(int cubie)
+	{
+		return this.edgeOrientation[cubie];
+	}
+
+	/**
+	 * Get the edge cubie at a position.
+	 * @param position the edge position
+	 * @return the cubie at that position
+	 */
+	public int getEdgeAt(int position)
+	{
+		return this.edgeAt[position];
+	}
+
+	/**
+	 * Put a corner cubie at a position. The caller must place every cubie at
+	 * a different position before using the state.
+	 * @param cubie the corner cubie
+	 * @param position the position to put it at
+	 * @param orientation the twist of the cubie, from 0 to 2
+	 */
+	public void setCorner(int cubie, int position, int orientation)
+	{
+		long[] keys = CORNER_KEYS[cubie];
+		this.hash ^= keys[this.cornerPosition[cubie] * 3 + this.cornerOrientation[cubie]]
+				^ keys[position * 3 + orientation];
+		this.cornerPosition[cubie] = (byte) position;
+		this.cornerOrientation[cubie] = (byte) orientation;
+		this.cornerAt[position] = (byte) cubie;
+	}
+
+	/**
+	 * Put an edge cubie at a position. The caller must place every cubie at a
+	 * different position before using the state.
+	 * @param cubie the edge cubie
+	 * @param position the position to put it at
+	 * @param orientation the flip of the cubie, 0 or 1
+	 */
+	public void setEdge(int cubie, int position, int orientation)
+	{
+		long[] keys = EDGE_KEYS[cubie];
+		this.hash ^= keys[this.edgePosition[cubie] * 2 + this.edgeOrientation[cubie]]
+				^ keys[position * 2 + orientation];
+		this.edgePosition[cubie] = (byte) position;
+		this.edgeOrientation[cubie] = (byte) orientation;
+		this.edgeAt[position] = (byte) cubie;
+	}
+
+	/**
+	 * Get the side that a face of a corner cubie is currently on.
+	 * @param cubie the corner cubie
+	 * @param face the index of the face in CORNER_SIDES[cubie]
+	 * @return the current side of the face
+	 */
+	public Side getCornerFaceSide(int cubie, int face)
+	{
+		return CORNER_SIDES[this.cornerPosition[cubie]]
+				[(face + this.cornerOrientation[cubie]) % 3];
+	}
+
+	/**
+	 * Get the side that a face of an edge cubie is currently on.
+	 * @param cubie the edge cubie
+	 * @param face the index of the face in EDGE_SIDES[cubie]
+	 * @return the current side of the face
+	 */
+	public Side getEdgeFaceSide(int cubie, int face)
+	{
+		return EDGE_SIDES[this.edgePosition[cubie]]
+				[(face + this.edgeOrientation[cubie]) & 1];
+	}
+
+	/**
+	 * Get the face of a corner cubie that is currently on a side.
+	 * @param cubie the corner cubie
+	 * @param side the side
+	 * @return the index of the face in CORNER_SIDES[cubie], or -1 if no face
+	 * of the cubie is on the side
+	 */
+	int getCornerFaceOn(int cubie, Side side)
+	{
+		int slot = CORNER_SLOT[this.cornerPosition[cubie]][side.ordinal()];
+		if (slot < 0) return -1;
+		return (slot + 3 - this.cornerOrientation[cubie]) % 3;
+	}
+
+	/**
+	 * Get the face of an edge cubie that is currently on a side.
+	 * @param cubie the edge cubie
+	 * @param side the side
+	 * @return the index of the face in EDGE_SIDES[cubie], or -1 if no face of
+	 * the cubie is on the side
+	 */
+	int getEdgeFaceOn(int cubie, Side side)
+	{
+		int slot = EDGE_SLOT[this.edgePosition[cubie]][side.ordinal()];
+		if (slot < 0) return -1;
+		return (slot + this.edgeOrientation[cubie]) & 1;
+	}
+
+	/**
+	 * Find the corner whose sides are the given sides, in any order.
+	 * @param sides the three sides of the corner
+	 * @return the corner index, or -1 if no corner has those sides
+	 */
+	public static int findCorner(Side[] sides)
+	{
+		return find(CORNER_SIDES, sides);
+	}
+
+	/**
+	 * Find the edge whose sides are the given sides, in any order.
+	 * @param sides the two sides of the edge
+	 * @return the edge index, or -1 if no edge has those sides
+	 */
+	public static int findEdge(Side[] sides)
+	{
+		return find(EDGE_SIDES, sides);
+	}
+
+	/**
+	 * Place a piece given as its faces' destination and current sides. Only
+	 * the sides are checked: the caller must place each cubie once and at a
+	 * position of its own, as a piece placed at a used position leaves
+	 * another one empty.
+	 * (Precondition: destination.length == current.length)
+	 * @param destination the destination sides of the piece's faces
+	 * @param current the current sides of the piece's faces, in the same order
+	 * @return the cubie placed
+	 * @throws IllegalArgumentException if the sides don't describe a piece
+	 * that can be on a real cube
+	 */
+	public int place(Side[] destination, Side[] current)
+	{
+		boolean corner = destination.length == 3;
+		Side[][] positions = corner ? CORNER_SIDES : EDGE_SIDES;
+		int cubie = find(positions, destination);
+		int position = find(positions, current);
+		if (cubie < 0 || position < 0 || current.length != destination.length)
+		{
+			throw new IllegalArgumentException("Not a piece of a rubiks cube: "
+					+ sidesString(destination) + " at " + sidesString(current));
+		}
+		int size = destination.length;
+		int orientation = (indexOf(positions[position], current[0]) -
+				indexOf(positions[cubie], destination[0]) + size) % size;
+		for (int i = 1; i < size; i++)
+		{
+			int expected = (indexOf(positions[cubie], destination[i]) + orientation) % size;
+			if (indexOf(positions[position], current[i]) != expected)
+			{
+				throw new IllegalArgumentException("Piece " + sidesString(destination)
+						+ " is mirrored at " + sidesString(current));
+			}
+		}
+		if (corner)
+		{
+			this.setCorner(cubie, position, orientation);
+		}
+		else
+		{
+			this.setEdge(cubie, position, orientation);
+		}
+		return cubie;
+	}
+
+	private static int find(Side[][] positions, Side[] sides)
+	{
+		for (int i = 0; i < positions.length; i++)
+		{
+			if (positions[i].length != sides.length) return -1;
+			boolean all = true;
+			for (Side side : sides)
+			{
+				if (indexOf(positions[i], side) < 0) all = false;
+			}
+			if (all) return i;
+		}
+		return -1;
+	}
+
+	static int indexOf(Side[] sides, Side side)
+	{
+		for (int i = 0; i < sides.length; i++)
+		{
+			if (sides[i] == side) return i;
+		}
+		return -1;
+	}
+
+	private static String sidesString(Side[] sides)
+	{
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < sides.length; i++)
+		{
+			if (i > 0) builder.append(", ");
+			builder.append(sides[i]);
+		}
+		return builder.append("]").toString();
+	}
+
+	private static Side[] turn(Side a, Side b, Side c, Side d)
+	{
+		Side[] map = SIDES.clone();
+		map[a.ordinal()] = b;
+		map[b.ordinal()] = c;
+		map[c.ordinal()] = d;
+		map[d.ordinal()] = a;
+		return map;
+	}
+
+	/**
+	 * Fill in the table for a quarter turn of a side by moving the sides of
+	 * every position on that side.
+	 */
+	private static void buildQuarterTurn(Side[][] positions, Side turned,
+			byte[] newPosition, byte[] orientationChange)
+	{
+		Side[] map = QUARTER_TURNS[turned.ordinal()];
+		int size = positions[0].length;
+		for (int position = 0; position < positions.length; position++)
+		{
+			newPosition[position] = (byte) position;
+			if (indexOf(positions[position], turned) < 0) continue;
+
+			Side[] moved = new Side[size];
+			for (int i = 0; i < size; i++)
+			{
+				moved[i] = map[positions[position][i].ordinal()];
+			}
+			int target = find(positions, moved);
+			newPosition[position] = (byte) target;
+			orientationChange[position] = (byte) indexOf(positions[target], moved[0]);
+		}
+	}
+
+	private static void onSide(Side[][] positions, Side side, byte[] onSide)
+	{
+		int count = 0;
+		for (int position = 0; position < positions.length; position++)
+		{
+			if (indexOf(positions[position], side) >= 0)
+			{
+				onSide[count++] = (byte) position;
+			}
+		}
+	}
+
+	/**
+	 * Fill in the table for doing move a then move b.
+	 */
+	private static void compose(byte[] positionA, byte[] changeA, byte[] positionB,
+			byte[] changeB, int size, byte[] position, byte[] change)
+	{
+		for (int i = 0; i < position.length; i++)
+		{
+			position[i] = positionB[positionA[i]];
+			change[i] = (byte) ((changeA[i] + changeB[positionA[i]]) % size);
+		}
+	}
+}
@@ -0,0 +1,334 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads cube states from rubiks cube xml:
+ *
+ * <rubikscube>
+ *   <piece>
+ *     <type>edge</type>
+ *     <destination>tf</destination>
+ *     <current>ta</current>
+ *   </piece>
+ *   ...
+ * </rubikscube>
+ *
+ * The letters are the sides: t top, o bottom, r right, l left, f front and a
+ * back. The destination sides of a piece are given in the order of the
+ * current sides they are on. The type is read for the length of the sides
+ * and otherwise not needed.
+ *
+ * A stream may hold one rubikscube element, or many inside any other element.
+ * They are streamed with StAX, each decoded straight into a CubeState given
+ * by the caller, so a file of any number of cubes is read in the same
+ * memory.
+ * @author Cathal
+ *
+ */
+public class CubeXMLReader implements AutoCloseable
+{
+	private static final String CUBE = "rubikscube";
+	private static final String PIECE = "piece";
+	private static final String DESTINATION = "destination";
+	private static final String CURRENT = "current";
+
+	private final InputStream in;
+	private final XMLStreamReader reader;
+	private final PieceSides piece = new PieceSides();
+
+	/**
+	 * The sides of the piece being read, kept to be used for every piece.
+	 */
+	private static class PieceSides
+	{
+		private final Side[][] destination = {new Side[2], new Side[3]};
+		private final Side[][] current = {new Side[2], new Side[3]};
+		private Side[] destinationSides;
+		private Side[] currentSides;
+
+		private void clear()
+		{
+			this.destinationSides = null;
+			this.currentSides = null;
+		}
+
+		/**
+		 * Place the piece in a state.
+		 * @return the cubie placed, plus CubeState.EDGE_COUNT for a corner
+		 */
+		private int place(CubeState state)
+		{
+			if (this.destinationSides == null || this.currentSides == null ||
+					this.destinationSides.length != this.currentSides.length)
+			{
+				throw new IllegalArgumentException("A piece needs a destination and "
+						+ "current of the same length");
+			}
+			int cubie = state.place(this.destinationSides, this.currentSides);
+			return this.currentSides.length == 3 ? cubie + CubeState.EDGE_COUNT : cubie;
+		}
+	}
+
+	/**
+	 * Create a reader of the cubes in a stream.
+	 * @param in the stream to read, which is closed with the reader
+	 * @throws XMLStreamException if the stream can't be read as xml
+	 */
+	public CubeXMLReader(InputStream in) throws XMLStreamException
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		this.in = in;
+		this.reader = factory.createXMLStreamReader(in);
+	}
+
+	/**
+	 * Read the next cube of the stream.
+	 * @param state the state to read the cube into
+	 * @return true if a cube was read, false at the end of the stream
+	 * @throws XMLStreamException if the stream isn't well formed xml
+	 * @throws IllegalArgumentException if the cube isn't a rubiks cube
+	 */
+	public boolean next(CubeState state) throws XMLStreamException
+	{
+		while (this.reader.hasNext())
+		{
+			if (this.reader.next() == XMLStreamConstants.START_ELEMENT &&
+					this.reader.getLocalName().equals(CUBE))
+			{
+				this.readCube(state);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void readCube(CubeState state) throws XMLStreamException
+	{
+		state.reset();
+		long used = 0;
+		int count = 0;
+		int depth = 1;
+		while (depth > 0)
+		{
+			int event = this.reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+				String name = this.reader.getLocalName();
+				if (name.equals(PIECE))
+				{
+					this.piece.clear();
+				}
+				else if (name.equals(DESTINATION))
+				{
+					this.piece.destinationSides = this.readSides(this.piece.destination);
+					depth--;
+				}
+				else if (name.equals(CURRENT))
+				{
+					this.piece.currentSides = this.readSides(this.piece.current);
+					depth--;
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+				if (this.reader.getLocalName().equals(PIECE))
+				{
+					used = usePiece(used, this.piece.place(state), state);
+					count++;
+				}
+			}
+		}
+		checkCount(count);
+	}
+
+	/**
+	 * Read the text of an element as sides, ending at the end of the element.
+	 */
+	private Side[] readSides(Side[][] sides) throws XMLStreamException
+	{
+		int length = 0;
+		Side[] read = null;
+		int event;
+		while ((event = this.reader.next()) != XMLStreamConstants.END_ELEMENT)
+		{
+			if (event == XMLStreamConstants.CHARACTERS)
+			{
+				char[] text = this.reader.getTextCharacters();
+				int start = this.reader.getTextStart();
+				int end = start + this.reader.getTextLength();
+				for (int i = start; i < end; i++)
+				{
+					if (Character.isWhitespace(text[i])) continue;
+					if (read == null)
+					{
+						// the length isn't known until the end, so fill the
+						// corner array and copy to the edge array if needed
+						read = sides[1];
+					}
+					if (length == 3)
+					{
+						throw new IllegalArgumentException("Too many sides: " + this.reader.getText());
+					}
+					read[length++] = getSide(text[i]);
+				}
+			}
+		}
+		if (length == 2)
+		{
+			sides[0][0] = sides[1][0];
+			sides[0][1] = sides[1][1];
+			return sides[0];
+		}
+		if (length != 3)
+		{
+			throw new IllegalArgumentException("A piece has 2 or 3 sides");
+		}
+		return sides[1];
+	}
+
+	/**
+	 * Read the cube of a document into a state, walking the elements of the
+	 * document.
+	 * @param doc the document, with a rubikscube element at its root
+	 * @param state the state to read the cube into
+	 * @throws IllegalArgumentException if the document isn't a rubiks cube
+	 */
+	public static void read(Document doc, CubeState state)
+	{
+		Element root = doc.getDocumentElement();
+		if (root == null || !root.getTagName().equals(CUBE))
+		{
+			throw new IllegalArgumentException("Not a rubiks cube document");
+		}
+		state.reset();
+		PieceSides piece = new PieceSides();
+		long used = 0;
+		int count = 0;
+		for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling())
+		{
+			if (node.getNodeType() != Node.ELEMENT_NODE ||
+					!node.getNodeName().equals(PIECE))
+			{
+				continue;
+			}
+			piece.clear();
+			for (Node child = node.getFirstChild(); child != null;
+					child = child.getNextSibling())
+			{
+				if (child.getNodeName().equals(DESTINATION))
+				{
+					piece.destinationSides = getSides(child.getTextContent().trim());
+				}
+				else if (child.getNodeName().equals(CURRENT))
+				{
+					piece.currentSides = getSides(child.getTextContent().trim());
+				}
+			}
+			used = usePiece(used, piece.place(state), state);
+			count++;
+		}
+		checkCount(count);
+	}
+
+	private static Side[] getSides(String letters)
+	{
+		if (letters.length() != 2 && letters.length() != 3)
+		{
+			throw new IllegalArgumentException("A piece has 2 or 3 sides: " + letters);
+		}
+		Side[] sides = new Side[letters.length()];
+		for (int i = 0; i < sides.length; i++)
+		{
+			sides[i] = getSide(letters.charAt(i));
+		}
+		return sides;
+	}
+
+	/**
+	 * Get the side a letter stands for.
+	 * @param letter the letter
+	 * @return the side
+	 * @throws IllegalArgumentException if the letter isn't a side
+	 */
+	public static Side getSide(char letter)
+	{
+		switch (letter)
+		{
+		case 't':
+			return Side.TOP;
+		case 'o':
+			return Side.BOTTOM;
+		case 'r':
+			return Side.RIGHT;
+		case 'l':
+			return Side.LEFT;
+		case 'f':
+			return Side.FRONT;
+		case 'a':
+			return Side.BACK;
+		default:
+			throw new IllegalArgumentException("Not a side: " + letter);
+		}
+	}
+
+	/**
+	 * Mark a piece and the position it was placed at as used: one bit for
+	 * each of the 12 edges then 8 corners, then the same for the positions.
+	 * Placing a piece at a position that is already used would leave another
+	 * position empty.
+	 */
+	private static long usePiece(long used, int piece, CubeState state)
+	{
+		int position = piece < CubeState.EDGE_COUNT ? state.getEdgePosition(piece) :
+			state.getCornerPosition(piece - CubeState.EDGE_COUNT) + CubeState.EDGE_COUNT;
+		if ((used & (1L << piece)) != 0)
+		{
+			throw new IllegalArgumentException("A piece is used twice");
+		}
+		int positionBit = CubeState.EDGE_COUNT + CubeState.CORNER_COUNT + position;
+		if ((used & (1L << positionBit)) != 0)
+		{
+			throw new IllegalArgumentException("Two pieces are at the same position");
+		}
+		return used | (1L << piece) | (1L << positionBit);
+	}
+
+	private static void checkCount(int count)
+	{
+		if (count != CubeState.EDGE_COUNT + CubeState.CORNER_COUNT)
+		{
+			throw new IllegalArgumentException("A rubiks cube has 20 pieces, not " + count);
+		}
+	}
+
+	/**
+	 * Close the reader and its stream.
+	 */
+	@Override
+	public void close() throws XMLStreamException, IOException
+	{
+		try
+		{
+			this.reader.close();
+		}
+		finally
+		{
+			this.in.close();
+		}
+	}
+}
@@ -23,6 +23,18 @@ public class Edge extends Piece
 		super(sides, currentSides);
 	}
 	
+	/**
+	 * Create an edge piece that is a view over a cubie of a cube state.
+	 * (Precondition: sides.length == 2)
+	 * @param sides the destination sides of the faces
+	 * @param state the state the cubie is in
+	 * @param cubie the edge cubie of the piece
+	 */
+	Edge(Side[] sides, CubeState state, int cubie)
+	{
+		super(sides, state, cubie);
+	}
+	
 	/**
 	 * Get the face of the edge that doesn't have a given destination side.
 	 * (Precondition: one face has that destination side)
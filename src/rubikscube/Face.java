@@ -2,6 +2,8 @@ package rubikscube;
 
 /**
  * A face of a rubiks cube has a destination side and a current side.
+ * A face of a piece in a RubiksCube is a view over the cube's CubeState, so
+ * its current side changes as the cube is rotated.
  * @author Cathal
  *
  */
@@ -10,6 +12,12 @@ public class Face
 	private Side destination;
 	private Side current;
 	
+	// set when the face is a view over a cube state
+	private CubeState state;
+	private int cubie;
+	private int index;
+	private boolean corner;
+	
 	/**
 	 * Create a face with a given destination and current side.
 	 * @param side the destination side of the face
@@ -32,13 +40,39 @@ public class Face
 		this.current = side;
 	}
 	
+	/**
+	 * Create a face that is a view over a cubie of a cube state.
+	 * @param destinationSide the destination side of the face
+	 * @param state the state the cubie is in
+	 * @param cubie the corner or edge cubie the face belongs to
+	 * @param corner true if the cubie is a corner
+	 */
+	Face(Side destinationSide, CubeState state, int cubie, boolean corner)
+	{
+		this.destination = destinationSide;
+		this.state = state;
+		this.cubie = cubie;
+		this.corner = corner;
+		Side[] homeSides = corner ? CubeState.CORNER_SIDES[cubie] :
+			CubeState.EDGE_SIDES[cubie];
+		this.index = CubeState.indexOf(homeSides, destinationSide);
+	}
+	
 	/**
 	 * Get the side that the face is currently on.
 	 * @return the current side of the face
 	 */
 	public Side getCurrentSide()
 	{
-		return this.current;
+		if (this.state == null)
+		{
+			return this.current;
+		}
+		if (this.corner)
+		{
+			return this.state.getCornerFaceSide(this.cubie, this.index);
+		}
+		return this.state.getEdgeFaceSide(this.cubie, this.index);
 	}
 	
 	/**
@@ -56,15 +90,23 @@ public class Face
 	 */
 	public boolean isAtCorrectSide()
 	{
-		return this.destination == this.current;
+		return this.destination == this.getCurrentSide();
 	}
 	
 	/**
 	 * Change the current side of the face.
+	 * (Precondition: the face is not part of a RubiksCube, whose faces only
+	 * move when the cube is rotated)
 	 * @param newSide the side to change the face to.
+	 * @throws IllegalStateException if the face is part of a RubiksCube
 	 */
 	public void changeCurrentSide(Side newSide)
 	{
+		if (this.state != null)
+		{
+			throw new IllegalStateException("The faces of a rubiks cube "
+					+ "only move when the cube is rotated");
+		}
 		this.current = newSide;
 	}
 	
@@ -0,0 +1,221 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Converts between cube states and facelet strings, the 54 character form
+ * scanners and other solvers use. The string gives the colour of each
+ * facelet, side by side in the order top (U), right (R), front (F),
+ * bottom (D), left (L), back (B), each row by row from the top left as the
+ * side is looked at, with the top side above the front, right, back and
+ * left sides and the bottom side below the front side.
+ *
+ * Any six characters can be the colours: the centre facelet of each side
+ * says which colour is that side's. A state is written with the letters
+ * URFDLB.
+ *
+ * Neither decode nor encode allocates, so they can be used on every cube of
+ * a large batch with one CubeState and one char array.
+ * @author Cathal
+ *
+ */
+public class Facelets
+{
+	public static final int LENGTH = 54;
+
+	// the order of the sides in a facelet string
+	private static final Side[] SIDES =
+		{Side.TOP, Side.RIGHT, Side.FRONT, Side.BOTTOM, Side.LEFT, Side.BACK};
+	private static final char[] LETTERS = {'U', 'R', 'F', 'D', 'L', 'B'};
+	private static final int SIDE_COUNT = 6;
+	private static final int CENTRE = 4;
+
+	// the facelets of each position, in the order of CubeState.CORNER_SIDES
+	// and CubeState.EDGE_SIDES
+	private static final int[][] CORNER_FACELETS =
+		{{6, 18, 38}, {8, 9, 20}, {0, 36, 47}, {2, 45, 11},
+		 {27, 44, 24}, {29, 26, 15}, {33, 53, 42}, {35, 17, 51}};
+	private static final int[][] EDGE_FACELETS =
+		{{7, 19}, {1, 46}, {3, 37}, {5, 10}, {28, 25}, {34, 52},
+		 {30, 43}, {32, 16}, {21, 41}, {23, 12}, {50, 39}, {48, 14}};
+
+	// the cubie and orientation (cubie * 3 + orientation for corners,
+	// cubie * 2 + orientation for edges) of the piece with faces on the given
+	// sides at the slots of a position, indexed by the side ordinals in base
+	// 6, or -1 if there is no such piece
+	private static final int[] CORNER_BY_SIDES = new int[SIDE_COUNT * SIDE_COUNT * SIDE_COUNT];
+	private static final int[] EDGE_BY_SIDES = new int[SIDE_COUNT * SIDE_COUNT];
+	// indexed by side ordinal
+	private static final char[] LETTER_OF_SIDE = new char[SIDE_COUNT];
+
+	static
+	{
+		for (int i = 0; i < SIDE_COUNT; i++)
+		{
+			LETTER_OF_SIDE[SIDES[i].ordinal()] = LETTERS[i];
+		}
+		Arrays.fill(CORNER_BY_SIDES, -1);
+		Arrays.fill(EDGE_BY_SIDES, -1);
+		for (int cubie = 0; cubie < CubeState.CORNER_COUNT; cubie++)
+		{
+			Side[] sides = CubeState.CORNER_SIDES[cubie];
+			for (int orientation = 0; orientation < 3; orientation++)
+			{
+				int key = 0;
+				for (int slot = 0; slot < 3; slot++)
+				{
+					key = key * SIDE_COUNT + sides[(slot - orientation + 3) % 3].ordinal();
+				}
+				CORNER_BY_SIDES[key] = cubie * 3 + orientation;
+			}
+		}
+		for (int cubie = 0; cubie < CubeState.EDGE_COUNT; cubie++)
+		{
+			Side[] sides = CubeState.EDGE_SIDES[cubie];
+			for (int orientation = 0; orientation < 2; orientation++)
+			{
+				EDGE_BY_SIDES[sides[orientation].ordinal() * SIDE_COUNT +
+						sides[1 - orientation].ordinal()] = cubie * 2 + orientation;
+			}
+		}
+	}
+
+	/**
+	 * Set a state from a facelet string.
+	 * @param facelets the 54 facelet colours
+	 * @param state the state to set
+	 * @throws IllegalArgumentException if the string isn't the facelets of a
+	 * rubiks cube, in which case the state is left part set
+	 */
+	public static void decode(CharSequence facelets, CubeState state)
+	{
+		if (facelets.length() != LENGTH)
+		{
+			throw new IllegalArgumentException("A facelet string has " + LENGTH
+					+ " characters, not " + facelets.length());
+		}
+		for (int i = 0; i < SIDE_COUNT; i++)
+		{
+			for (int j = 0; j < i; j++)
+			{
+				if (centre(facelets, i) == centre(facelets, j))
+				{
+					throw new IllegalArgumentException("Two centres are the same colour: "
+							+ centre(facelets, i));
+				}
+			}
+		}
+
+		int used = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int[] slots = CORNER_FACELETS[position];
+			int piece = CORNER_BY_SIDES[(getSide(facelets, slots[0]) * SIDE_COUNT +
+					getSide(facelets, slots[1])) * SIDE_COUNT + getSide(facelets, slots[2])];
+			if (piece < 0)
+			{
+				throw new IllegalArgumentException("Not a corner at corner " + position);
+			}
+			int cubie = piece / 3;
+			used = use(used, cubie);
+			state.setCorner(cubie, position, piece % 3);
+		}
+		used = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int[] slots = EDGE_FACELETS[position];
+			int piece = EDGE_BY_SIDES[getSide(facelets, slots[0]) * SIDE_COUNT +
+					getSide(facelets, slots[1])];
+			if (piece < 0)
+			{
+				throw new IllegalArgumentException("Not an edge at edge " + position);
+			}
+			int cubie = piece / 2;
+			used = use(used, cubie);
+			state.setEdge(cubie, position, piece % 2);
+		}
+	}
+
+	/**
+	 * Write the facelet string of a state, in the letters URFDLB.
+	 * (Precondition: facelets has LENGTH places from offset)
+	 * @param state the state to write
+	 * @param facelets the array to write into
+	 * @param offset where in the array to start
+	 */
+	public static void encode(CubeState state, char[] facelets, int offset)
+	{
+		for (int side = 0; side < SIDE_COUNT; side++)
+		{
+			facelets[offset + side * 9 + CENTRE] = LETTERS[side];
+		}
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int cubie = state.getCornerAt(position);
+			int orientation = state.getCornerOrientation(cubie);
+			for (int slot = 0; slot < 3; slot++)
+			{
+				facelets[offset + CORNER_FACELETS[position][slot]] = getLetter(
+						CubeState.CORNER_SIDES[cubie][(slot - orientation + 3) % 3]);
+			}
+		}
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			int orientation = state.getEdgeOrientation(cubie);
+			for (int slot = 0; slot < 2; slot++)
+			{
+				facelets[offset + EDGE_FACELETS[position][slot]] = getLetter(
+						CubeState.EDGE_SIDES[cubie][(slot + orientation) & 1]);
+			}
+		}
+	}
+
+	/**
+	 * Get the facelet string of a state, in the letters URFDLB.
+	 * @param state the state to write
+	 * @return the facelet string
+	 */
+	public static String encode(CubeState state)
+	{
+		char[] facelets = new char[LENGTH];
+		encode(state, facelets, 0);
+		return new String(facelets);
+	}
+
+	private static char centre(CharSequence facelets, int side)
+	{
+		return facelets.charAt(side * 9 + CENTRE);
+	}
+
+	/**
+	 * Get the ordinal of the side whose centre is the colour of a facelet.
+	 */
+	private static int getSide(CharSequence facelets, int facelet)
+	{
+		char colour = facelets.charAt(facelet);
+		for (int side = 0; side < SIDE_COUNT; side++)
+		{
+			if (centre(facelets, side) == colour) return SIDES[side].ordinal();
+		}
+		throw new IllegalArgumentException("Facelet " + facelet + " is not the colour "
+				+ "of a centre: " + colour);
+	}
+
+	private static char getLetter(Side side)
+	{
+		return LETTER_OF_SIDE[side.ordinal()];
+	}
+
+	/**
+	 * Mark a cubie as used, one bit for each.
+	 */
+	private static int use(int used, int cubie)
+	{
+		if ((used & (1 << cubie)) != 0)
+		{
+			throw new IllegalArgumentException("A piece is on the cube twice");
+		}
+		return used | (1 << cubie);
+	}
+}
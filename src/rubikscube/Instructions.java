@@ -0,0 +1,75 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes solutions as instructions in English, a line for each move, naming
+ * the side to rotate by the colour of its centre, for example "Rotate red
+ * 90 degrees clockwise". The colours are those the solver model uses (see
+ * PieceColours).
+ * @author Cathal
+ *
+ */
+public class Instructions
+{
+	// indexed by side ordinal
+	private static final String[] COLOURS = new String[Side.values().length];
+	private static final String[] AMOUNTS =
+		{" 90 degrees clockwise\n", " 180 degrees\n", " 90 degrees anti-clockwise\n"};
+
+	static
+	{
+		COLOURS[Side.FRONT.ordinal()] = "red";
+		COLOURS[Side.BACK.ordinal()] = "orange";
+		COLOURS[Side.RIGHT.ordinal()] = "blue";
+		COLOURS[Side.LEFT.ordinal()] = "green";
+		COLOURS[Side.TOP.ordinal()] = "white";
+		COLOURS[Side.BOTTOM.ordinal()] = "yellow";
+	}
+
+	/**
+	 * Get the colour of the centre of a side.
+	 * @param side the side
+	 * @return the name of the colour
+	 */
+	public static String getColour(Side side)
+	{
+		return COLOURS[side.ordinal()];
+	}
+
+	/**
+	 * Write the instructions for some moves.
+	 * @param moves the move indices (see CubeState.moveIndex)
+	 * @param length the number of moves to write
+	 * @param out where to write them
+	 * @throws IOException if out can't be written to
+	 */
+	public static void append(byte[] moves, int length, Appendable out) throws IOException
+	{
+		for (int i = 0; i < length; i++)
+		{
+			out.append("Rotate ").append(COLOURS[moves[i] / 3]).append(AMOUNTS[moves[i] % 3]);
+		}
+	}
+
+	/**
+	 * Get the instructions for some moves.
+	 * @param moves the move indices (see CubeState.moveIndex)
+	 * @return the instructions, a line for each move
+	 */
+	public static String toString(byte[] moves)
+	{
+		StringBuilder builder = new StringBuilder(moves.length * 32);
+		try
+		{
+			append(moves, moves.length, builder);
+		}
+		catch (IOException e)
+		{
+			// a StringBuilder doesn't throw
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
+	}
+}
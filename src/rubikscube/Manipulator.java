@@ -1,82 +1,85 @@
 package rubikscube;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
 /**
  * Manipulates a single rubiks cube.
+ * One Manipulator can be shared by threads. The cube and the moves it keeps
+ * while solving are used by one solve at a time, and a solve that finds them
+ * in use solves on a Manipulator of its own instead. Once a Manipulator has
+ * solved a few cubes, a solve on its own cube allocates nothing but the
+ * solution it gives back.
+ *
+ * The time, moves and rotations of each stage of every solve and the cases
+ * used are added up in getMetrics, and recorded as flight recorder events
+ * when a recording has them on (see StageEvent, SolveCaseEvent and
+ * SolveEvent).
  * @author Cathal
  *
  */
-public class Manipulator
+public class Manipulator implements CubeSolver
 {
 	private RubiksCube rubiksCube;
-	private ArrayList<Move> solution;
-	private final HashMap<Side, String> colourMap = new HashMap<>();
+	// the moves of the solution as move indices (see CubeState.moveIndex)
+	private byte[] solution;
+	private int solutionLength;
+	// the side of the last move, which is kept even when the moves of that
+	// side add up to nothing, so that a later move isn't added to the move
+	// before it
+	private Side lastSide;
+	private boolean lastMoveEmpty;
+	// the metrics of the solve so far, by stage and by case ordinal
+	private int rotateCalls;
+	private final long[] stageNanos = new long[SolveMetrics.STAGE_COUNT];
+	private final int[] stageMoves = new int[SolveMetrics.STAGE_COUNT];
+	private final int[] stageRotateCalls = new int[SolveMetrics.STAGE_COUNT];
+	private final int[] caseCounts = new int[SolveCase.values().length];
+	// room for the pieces a stage picks out, so that it makes no garbage
+	private final Edge[] edges = new Edge[4];
+	private final Corner[] corners = new Corner[4];
+	// whether a solve is using the cube and moves above
+	private final AtomicBoolean solving = new AtomicBoolean();
+	// the moves of the last solve to finish
+	private volatile byte[] lastSolution = new byte[0];
 	
-	public Manipulator()
-	{
-		this.rubiksCube = new RubiksCube();
-		this.solution = new ArrayList<>();
-		colourMap.put(Side.FRONT, "red");
-		colourMap.put(Side.BACK, "orange");
-		colourMap.put(Side.RIGHT, "blue");
-		colourMap.put(Side.LEFT, "green");
-		colourMap.put(Side.TOP, "white");
-		colourMap.put(Side.BOTTOM, "yellow");
-	}
+	// indexed by side: the side on the right of it and on the left of it
+	// looking at it with the top up, null for the top and bottom, and the
+	// side opposite it
+	private static final Side[] SIDE_ON_RIGHT = new Side[6];
+	private static final Side[] SIDE_ON_LEFT = new Side[6];
+	private static final Side[] OPPOSITE_SIDE = new Side[6];
 	
-	/**
-	 * A move represents a side with a certain amount of clockwise rotation.
-	 * 0 -> no rotation
-	 * 1 -> 90 degrees clockwise
-	 * 2 -> 180 degrees
-	 * 3 -> 90 degrees anti-clockwise
-	 * Amount will always be one of these numbers as whenever a value is added 
-	 * to it, the total is divided by four, and the remainder is the new amount.
-	 * @author Cathal
-	 *
-	 */
-	private class Move
+	private static final Side[] FOUR_SIDES = {Side.FRONT, Side.BACK, Side.LEFT, Side.RIGHT};
+	
+	private static final SolveMetrics METRICS = new SolveMetrics();
+	
+	static
 	{
-		private int amount;
-		private Side side;
-		
-		private Move(Side side, int amount)
+		// a quarter turn of the whole cube looking at the bottom sends each
+		// side round to the side on its right
+		int toRight = Symmetry.getQuarterTurn(Side.BOTTOM);
+		int toLeft = Symmetry.getQuarterTurn(Side.TOP);
+		for (Side side : Side.values())
 		{
-			this.side = side;
-			this.amount = 0;
-			this.addMove(amount);
-		}
-		
-		private Side getSide()
-		{
-			return this.side;
-		}
-		
-		private void addMove(int amount)
-		{
-			this.amount += amount;
-			this.amount = this.amount % 4;
-		}
-		
-		private int getAmount()
-		{
-			return this.amount;
+			if (side != Side.TOP && side != Side.BOTTOM)
+			{
+				SIDE_ON_RIGHT[side.ordinal()] = Symmetry.getSide(toRight, side);
+				SIDE_ON_LEFT[side.ordinal()] = Symmetry.getSide(toLeft, side);
+			}
+			OPPOSITE_SIDE[side.ordinal()] = Symmetry.getSide(Symmetry.INVERSION, side);
 		}
 	}
 	
+	public Manipulator()
+	{
+		this.rubiksCube = new RubiksCube();
+		this.solution = new byte[256];
+	}
+	
 	/**
 	 * Get the side on the right relative to a given side.
 	 * (Precondition: side != (TOP || BOTTOM)
@@ -85,32 +88,7 @@ public class Manipulator
 	 */
 	public Side getSideOnRight(Side side)
 	{
-		Side right;
-		switch (side)
-		{
-		case BACK:
-			right = Side.LEFT;
-			break;
-		case BOTTOM:
-			right = null;
-			break;
-		case FRONT:
-			right = Side.RIGHT;
-			break;
-		case LEFT:
-			right = Side.FRONT;
-			break;
-		case RIGHT:
-			right = Side.BACK;
-			break;
-		case TOP:
-			right = null;
-			break;
-		default:
-			right = null;
-			break;
-		}
-		return right;
+		return SIDE_ON_RIGHT[side.ordinal()];
 	}
 	
 	/**
@@ -121,32 +99,7 @@ public class Manipulator
 	 */
 	public Side getSideOnLeft(Side side)
 	{
-		Side left;
-		switch (side)
-		{
-		case BACK:
-			left = Side.RIGHT;
-			break;
-		case BOTTOM:
-			left = null;
-			break;
-		case FRONT:
-			left = Side.LEFT;
-			break;
-		case LEFT:
-			left = Side.BACK;
-			break;
-		case RIGHT:
-			left = Side.FRONT;
-			break;
-		case TOP:
-			left = null;
-			break;
-		default:
-			left = null;
-			break;
-		}
-		return left;
+		return SIDE_ON_LEFT[side.ordinal()];
 	}
 	
 	/**
@@ -156,186 +109,210 @@ public class Manipulator
 	 */
 	public Side getOppositeSide(Side side)
 	{
-		Side opposite;
-		switch (side)
+		return OPPOSITE_SIDE[side.ordinal()];
+	}
+	
+	/**
+	 * Solve a rubiks cube given as an xml document, and generate instructions
+	 * which can be accessed by the method getSolutionString.
+	 * @param doc the rubiks cube xml document (see CubeXMLReader)
+	 * @throws IllegalArgumentException if the document isn't a rubiks cube
+	 */
+	public void solve(Document doc)
+	{
+		CubeState state = new CubeState();
+		CubeXMLReader.read(doc, state);
+		this.solve(state);
+	}
+	
+	/**
+	 * Solve a rubiks cube given as the colours of its pieces, and generate
+	 * instructions which can be accessed by the method getSolutionString.
+	 * @param pieceColours the colours of the piece at each position (see
+	 * PieceColours)
+	 * @throws IllegalArgumentException if the colours aren't a rubiks cube
+	 */
+	public void solve(String[] pieceColours)
+	{
+		CubeState state = new CubeState();
+		PieceColours.decode(pieceColours, state);
+		this.solve(state);
+	}
+	
+	/**
+	 * Solve a rubiks cube state and generate instructions which can be
+	 * accessed by the method getSolutionString.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex)
+	 */
+	@Override
+	public byte[] solve(CubeState state)
+	{
+		byte[] solution;
+		if (this.solving.compareAndSet(false, true))
+		{
+			try
+			{
+				solution = this.solveCube(state);
+			}
+			finally
+			{
+				this.solving.set(false);
+			}
+		}
+		else
+		{
+			// another thread is solving on this one's cube
+			solution = new Manipulator().solveCube(state);
+		}
+		this.lastSolution = solution;
+		return solution;
+	}
+	
+	/**
+	 * Solve a rubiks cube state on the cube of this Manipulator.
+	 * (Precondition: no other solve is using the cube)
+	 */
+	private byte[] solveCube(CubeState state)
+	{
+		SolveEvent event = null;
+		if (SolveEvent.TYPE.isEnabled())
+		{
+			event = new SolveEvent();
+			event.begin();
+		}
+		this.rubiksCube.setState(state);
+		this.clearSolution();
+		this.rotateCalls = 0;
+		Arrays.fill(this.caseCounts, 0);
+		for (int stage = 1; stage <= SolveMetrics.STAGE_COUNT; stage++)
+		{
+			this.runStage(stage);
+		}
+		METRICS.add(this.stageNanos, this.stageMoves, this.stageRotateCalls,
+				this.caseCounts);
+		if (event != null)
 		{
-		case BACK:
-			opposite = Side.FRONT;
+			event.moves = this.solutionLength;
+			event.rotateCalls = this.rotateCalls;
+			event.commit();
+		}
+		return Arrays.copyOf(this.solution, this.solutionLength);
+	}
+	
+	/**
+	 * Run a stage of the solve, keeping its metrics.
+	 * @param stage the stage, from 1 to SolveMetrics.STAGE_COUNT
+	 */
+	private void runStage(int stage)
+	{
+		StageEvent event = null;
+		if (StageEvent.TYPE.isEnabled())
+		{
+			event = new StageEvent();
+			event.begin();
+		}
+		long start = System.nanoTime();
+		int length = this.solutionLength;
+		int rotateCalls = this.rotateCalls;
+		switch (stage)
+		{
+		case 1:
+			stageOne();
 			break;
-		case BOTTOM:
-			opposite = Side.TOP;
+		case 2:
+			stageTwo();
 			break;
-		case FRONT:
-			opposite = Side.BACK;
+		case 3:
+			stageThree();
 			break;
-		case LEFT:
-			opposite = Side.RIGHT;
+		case 4:
+			stageFour();
 			break;
-		case RIGHT:
-			opposite = Side.LEFT;
+		case 5:
+			this.stageFive();
 			break;
-		case TOP:
-			opposite = Side.BOTTOM;
+		case 6:
+			this.stageSix();
 			break;
 		default:
-			opposite = null;
+			this.stageSeven();
 			break;
 		}
-		return opposite;
+		this.stageNanos[stage - 1] = System.nanoTime() - start;
+		this.stageMoves[stage - 1] = this.solutionLength - length;
+		this.stageRotateCalls[stage - 1] = this.rotateCalls - rotateCalls;
+		if (event != null)
+		{
+			event.stage = stage;
+			event.moves = this.stageMoves[stage - 1];
+			event.rotateCalls = this.stageRotateCalls[stage - 1];
+			event.commit();
+		}
 	}
 	
 	/**
-	 * Parse the rubiks cube xml file
-	 * @param file the file object to parse
-	 * @throws ParserConfigurationException 
-	 * @throws IOException 
-	 * @throws SAXException 
-	 * @throws XPathExpressionException 
-	 * @throws NumberFormatException 
+	 * Count a case of a stage being used.
+	 * @param solveCase the case
 	 */
-	private HashMap<String, HashMap<Integer, HashMap<String, Side[]>>> parseXML(Document doc)
-			throws ParserConfigurationException, SAXException, IOException, NumberFormatException, XPathExpressionException
+	private void fired(SolveCase solveCase)
 	{
-		HashMap<String, HashMap<Integer, HashMap<String, Side[]>>> toReturn = 
-				new HashMap<String, HashMap<Integer, HashMap<String, Side[]>>>();
-		
-		HashMap<String, Side> sideMap = new HashMap<>();
-		sideMap.put("t", Side.TOP);
-		sideMap.put("o", Side.BOTTOM);
-		sideMap.put("r", Side.RIGHT);
-		sideMap.put("l", Side.LEFT);
-		sideMap.put("a", Side.BACK);
-		sideMap.put("f", Side.FRONT);
-		
-//		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-//		DocumentBuilder builder = factory.newDocumentBuilder();
-//		Document doc = builder.parse(file);
-//		
-		XPathFactory xpFactory = XPathFactory.newInstance();
-		XPath path = xpFactory.newXPath();
-		
-		HashMap<Integer, HashMap<String, Side[]>> edges = new HashMap<>();
-		HashMap<Integer, HashMap<String, Side[]>> corners = new HashMap<>();
-		
-		int edgeIndex = 0;
-		int cornerIndex = 0;
-		
-		for (int i=0; i<Integer.parseInt(path.evaluate("count(/rubikscube/*)", doc)); i++)
+		this.caseCounts[solveCase.ordinal()]++;
+		if (SolveCaseEvent.TYPE.isEnabled())
 		{
-			int pathIndex = i + 1;
-			String piecePath = "rubikscube/piece["+pathIndex+"]";
-			
-			if (path.evaluate(piecePath+"/type", doc).equals("edge"))
-			{
-				HashMap<String, Side[]> newEdge = new HashMap<>();
-				
-				Side[] destination = new Side[2];
-				Side[] current = new Side[2];
-				String destinationString = path.evaluate(piecePath+"/destination", doc);
-				String currentString = path.evaluate(piecePath+"/current", doc);
-				
-				for (int index=0; index<2; index++)
-				{
-					destination[index] = 
-							sideMap.get(destinationString.substring(index, index+1));
-					current[index] = 
-							sideMap.get(currentString.substring(index, index+1));
-				}
-				newEdge.put("destination", destination);
-				newEdge.put("current", current);
-				edges.put(edgeIndex, newEdge);
-				edgeIndex ++;
-			}
-			
-			if (path.evaluate(piecePath+"/type", doc).equals("corner"))
-			{
-				HashMap<String, Side[]> newCorner = new HashMap<>();
-				
-				Side[] destination = new Side[3];
-				Side[] current = new Side[3];
-				String destinationString = path.evaluate(piecePath+"/destination", doc);
-				String currentString = path.evaluate(piecePath+"/current", doc);
-
-				for (int index=0; index<3; index++)
-				{
-					destination[index] = 
-							sideMap.get(destinationString.substring(index, index+1));
-					current[index] = 
-							sideMap.get(currentString.substring(index, index+1));
-				}
-				newCorner.put("destination", destination);
-				newCorner.put("current", current);
-				corners.put(cornerIndex, newCorner);
-				cornerIndex ++;
-			}
+			SolveCaseEvent event = new SolveCaseEvent();
+			event.stage = solveCase.getStage();
+			event.solveCase = solveCase.name();
+			event.commit();
 		}
-		toReturn.put("edges", edges);
-		toReturn.put("corners", corners);
-		return toReturn;
-		
 	}
 	
 	/**
-	 * Solve the rubiks cube and generate instructions which can be accessed by
-	 * the method getInstruction string.
-	 * @throws IOException 
-	 * @throws SAXException 
-	 * @throws ParserConfigurationException 
-	 * @throws XPathExpressionException 
-	 * @throws NumberFormatException 
+	 * Get the metrics of every solve by every Manipulator: the time, moves
+	 * and rotations of each stage and how many times each case was used.
+	 * @return the metrics, which can be read with snapshot
 	 */
-	public void solve(Document doc) throws NumberFormatException, XPathExpressionException, ParserConfigurationException, SAXException, IOException
+	public static SolveMetrics getMetrics()
 	{
-//		File f = new File(docfileName);
-		
-		HashMap<String, HashMap<Integer, HashMap<String, Side[]>>> parsed = this.parseXML(doc);
-		// extract the edge and corner data
-		HashMap<Integer, HashMap<String, Side[]>> edges = parsed.get("edges");
-		HashMap<Integer, HashMap<String, Side[]>> corners = parsed.get("corners");
-		
-		this.rubiksCube = new RubiksCube(edges, corners);
-		
-		this.solution.clear();
-		stageOne();
-		stageTwo();
-		stageThree();
-		stageFour();
-		this.stageFive();
-		this.stageSix();
-		this.stageSeven();
-		System.out.println(this.rubiksCube);
+		return METRICS;
 	}
 	
 	/**
-	 * Get the solution from the solved rubiks cube.
+	 * Get the solution from the last rubiks cube solved.
 	 * @return a string representation of the solution
 	 */
 	public String getSolutionString()
 	{
-		String solutionString = "";
-		for (Move move : this.solution)
-		{
-			int amount = move.getAmount();
-			if (amount != 0)
-			{
-				String colour = this.colourMap.get(move.getSide());
-				if (amount == 1) 
-				{
-					solutionString += "Rotate " + colour + " 90 degrees clockwise\n";
-				}
-				else if (amount == 2)
-				{
-					solutionString += "Rotate " + colour + " 180 degrees\n";
-				}
-				else // has to be 3
-				{
-					solutionString += "Rotate " + colour + " 90 degrees anti-clockwise\n";
-				}
-			}
-		}
-		return solutionString;
+		return Instructions.toString(this.lastSolution);
 	}
 	
+	/**
+	 * Get the moves of the solution from the last rubiks cube solved.
+	 * @return the move indices (see CubeState.moveIndex)
+	 */
+	public byte[] getSolution()
+	{
+		return this.lastSolution.clone();
+	}
+	
+	/**
+	 * Write the solution from the last rubiks cube solved as instructions,
+	 * without making a string of it first.
+	 * @param out where to write the instructions
+	 * @throws IOException if out can't be written to
+	 */
+	public void appendSolution(Appendable out) throws IOException
+	{
+		byte[] solution = this.lastSolution;
+		Instructions.append(solution, solution.length, out);
+	}
+	
+	private void clearSolution()
+	{
+		this.solutionLength = 0;
+		this.lastSide = null;
+	}	
 	/**
 	 * Calls rotate on the rubiks cube. It also adds an instruction to the 
 	 * instruction string.
@@ -344,30 +321,24 @@ public class Manipulator
 	 */
 	private void rotate(Side side, int amount)
 	{
+		this.rotateCalls++;
 		this.rubiksCube.rotate(side, amount);
-		if (this.solution.size() >= 1)
+		if (side == this.lastSide && !this.lastMoveEmpty)
 		{
-			Move lastMove = this.solution.get(this.solution.size() - 1);
-			if (lastMove.getSide() == side)
-			{
-				lastMove.addMove(amount);
-				return;
-			}
+			// add to the last move, taking it away if it comes to nothing
+			amount += CubeState.moveAmount(this.solution[this.solutionLength - 1]);
+			this.solutionLength--;
 		}
-		this.solution.add(new Move(side, amount));
-	}
-	
-	/**
-	 * Give the object a new rubiks cube.
-	 * Set the instruction string to empty again.
-	 * @param rc the new rubiks cube
-	 */
-	public void changeRubiksCube(RubiksCube rc)
-	{
-		this.rubiksCube = rc;
-		this.solution.clear();
-	}
-	
+		this.lastSide = side;
+		amount = amount & 3;
+		this.lastMoveEmpty = amount == 0;
+		if (this.lastMoveEmpty) return;
+		if (this.solutionLength == this.solution.length)
+		{
+			this.solution = Arrays.copyOf(this.solution, this.solutionLength * 2);
+		}
+		this.solution[this.solutionLength++] = (byte) CubeState.moveIndex(side, amount);
+	}	
 	// solver algorithms:
 	/** 
 	 * Sort out the four edges on top into proper places.
@@ -416,6 +387,7 @@ public class Manipulator
 	
 	private void stageOneCaseOne(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_CASE_ONE);
 		rotate(getSideOnRight(otherFace.getCurrentSide()), 1);
 		rotate(getSideOnLeft(otherFace.getCurrentSide()), 3);
 		rotate(otherFace.getCurrentSide(), 2);
@@ -426,6 +398,7 @@ public class Manipulator
 	
 	private void stageOneCaseTwo(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_CASE_TWO);
 		Side side = otherFace.getCurrentSide();
 		rotate(side, 1);
 		rotate(Side.BOTTOM, 1);
@@ -435,6 +408,7 @@ public class Manipulator
 	
 	private void stageOneCaseThree(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_CASE_THREE);
 		Side side = otherFace.getCurrentSide();
 		rotate(side, 3);
 		rotate(Side.BOTTOM, 1);
@@ -444,6 +418,7 @@ public class Manipulator
 	
 	private void stageOneCaseFour(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_CASE_FOUR);
 		Side side1 = topFace.getCurrentSide();
 		rotate(side1, 1);
 		Side side2 = otherFace.getCurrentSide();
@@ -456,6 +431,7 @@ public class Manipulator
 	
 	private void stageOneCaseFive(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_CASE_FIVE);
 		Side right = getSideOnRight(topFace.getCurrentSide());
 		Side left = getSideOnLeft(topFace.getCurrentSide());
 		rotate(right, 1);
@@ -468,6 +444,7 @@ public class Manipulator
 	
 	private void stageOneFinalCase(Face topFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_ONE_FINAL_CASE);
 		assert topFace.getCurrentSide() == Side.BOTTOM;
 		while (otherFace.getCurrentSide() != otherFace.getDestinationSide())
 		{
@@ -528,6 +505,7 @@ public class Manipulator
 	
 	private void stageTwoCaseOne(Face topFace, Face otherFace1, Face otherFace2)
 	{
+		this.fired(SolveCase.STAGE_TWO_CASE_ONE);
 		Side front = otherFace1.getCurrentSide();
 		Side right = null;
 		if (getSideOnRight(front) == otherFace2.getCurrentSide())
@@ -547,6 +525,7 @@ public class Manipulator
 	
 	private void stageTwoCaseTwo(Face topFace, Face otherFace1, Face otherFace2)
 	{
+		this.fired(SolveCase.STAGE_TWO_CASE_TWO);
 		Side front = topFace.getCurrentSide();
 		if ((getSideOnRight(front) == otherFace1.getCurrentSide()) ||
 				(getSideOnRight(front) == otherFace2.getCurrentSide()))
@@ -569,6 +548,7 @@ public class Manipulator
 	private void stageTwoCaseThree(Face topFace, Face otherFace1, 
 			Face otherFace2)
 	{
+		this.fired(SolveCase.STAGE_TWO_CASE_THREE);
 		Side side2 = otherFace2.getDestinationSide();
 		while (otherFace1.getCurrentSide() != side2)
 		{
@@ -596,6 +576,7 @@ public class Manipulator
 	private void stageTwoFinalCaseRight(Face topFace, Face otherFace1, 
 			Face otherFace2)
 	{
+		this.fired(SolveCase.STAGE_TWO_FINAL_CASE_RIGHT);
 		Face bottomFace = null;
 		if (otherFace1.getCurrentSide() == Side.BOTTOM) bottomFace = otherFace1;
 		else bottomFace = otherFace2;
@@ -613,6 +594,7 @@ public class Manipulator
 	private void stageTwoFinalCaseLeft(Face topFace, Face otherFace1,
 			Face otherFace2)
 	{
+		this.fired(SolveCase.STAGE_TWO_FINAL_CASE_LEFT);
 		Face bottomFace = null;
 		if (otherFace1.getCurrentSide() == Side.BOTTOM) bottomFace = otherFace1;
 		else bottomFace = otherFace2;
@@ -633,16 +615,12 @@ public class Manipulator
 	 */
 	private void stageThree()
 	{
-		ArrayList<Edge> edges = new ArrayList<>();
+		Edge[] edgesToUse = this.edges;
+		int count = 0;
 		for (Edge edge : rubiksCube.getEdgesWithoutDestinationSide(Side.TOP))
 		{
 			if (!edge.hasFaceWithDestinationSide(Side.BOTTOM))
-				edges.add(edge);
-		}
-		Edge[] edgesToUse = new Edge[4];
-		for (int i=0; i<edges.size(); i++)
-		{
-			edgesToUse[i] = edges.get(i);
+				edgesToUse[count++] = edge;
 		}
 		for (Edge edge : edgesToUse)
 		{
@@ -666,6 +644,7 @@ public class Manipulator
 	
 	private void stageThreeCaseOne(Face face1, Face face2)
 	{
+		this.fired(SolveCase.STAGE_THREE_CASE_ONE);
 		Side front = face1.getCurrentSide();
 		Side right = null;
 		if (face2.getCurrentSide() == getSideOnRight(front))
@@ -689,6 +668,7 @@ public class Manipulator
 	
 	private void stageThreeFinalCase(Face face1, Face face2)
 	{
+		this.fired(SolveCase.STAGE_THREE_FINAL_CASE);
 		Face bottomFace = null;
 		Face otherFace = null;
 		if (face1.getCurrentSide() == Side.BOTTOM)
@@ -719,6 +699,7 @@ public class Manipulator
 	
 	private void stageThreeFinalCaseRight(Face bottomFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_THREE_FINAL_CASE_RIGHT);
 		rotate(bottomFace.getDestinationSide(), 1);
 		rotate(Side.BOTTOM, 3);
 		rotate(bottomFace.getDestinationSide(), 3);
@@ -730,6 +711,7 @@ public class Manipulator
 	
 	private void stageThreeFinalCaseLeft(Face bottomFace, Face otherFace)
 	{
+		this.fired(SolveCase.STAGE_THREE_FINAL_CASE_LEFT);
 		rotate(bottomFace.getDestinationSide(), 3);
 		rotate(Side.BOTTOM, 1);
 		rotate(bottomFace.getDestinationSide(), 1);
@@ -740,42 +722,42 @@ public class Manipulator
 	}
 	
 	
-	private Edge[] stageFourGetEdgesAtDest(Edge[] edges)
+	/**
+	 * Put the edges whose bottom face is on the bottom in this.edges.
+	 * @return the number of them
+	 */
+	private int stageFourGetEdgesAtDest(Edge[] edges)
 	{
-		ArrayList<Edge> edgesAtDest = new ArrayList<>();
+		int count = 0;
 		for (Edge edge : edges)
 		{
 			if (edge.getFaceWithDestinationSide(Side.BOTTOM).isAtCorrectSide())
 			{
-				edgesAtDest.add(edge);
+				this.edges[count++] = edge;
 			}
 		}
-		Edge[] toReturn = new Edge[edgesAtDest.size()];
-		for (int i = 0; i < edgesAtDest.size(); i++)
-		{
-			toReturn[i] = edgesAtDest.get(i);
-		}
-		return toReturn;
+		return count;
 	}
 	
 	private void stageFour()
 	{
 		Edge[] edges = rubiksCube.getEdgesWithDestinationSide(Side.BOTTOM);
-		Edge[] atDest = stageFourGetEdgesAtDest(edges);
+		Edge[] atDest = this.edges;
+		int atDestCount = stageFourGetEdgesAtDest(edges);
 		
-		if (atDest.length == 0)
+		if (atDestCount == 0)
 		{
 			stageFourSequenceOne();
-			atDest = stageFourGetEdgesAtDest(edges);
+			atDestCount = stageFourGetEdgesAtDest(edges);
 		}
-		if ((atDest.length == 2) &&
+		if ((atDestCount == 2) &&
 				(atDest[0].getOtherFace(Side.BOTTOM).getCurrentSide() ==
 				getOppositeSide(atDest[1].getOtherFace(Side.BOTTOM).getCurrentSide())))
 		{
 			stageFourSequenceOne();
-			atDest = stageFourGetEdgesAtDest(edges);
+			atDestCount = stageFourGetEdgesAtDest(edges);
 		}
-		if ((atDest.length == 2) &&
+		if ((atDestCount == 2) &&
 			((	atDest[0].getOtherFace(Side.BOTTOM).getCurrentSide() ==
 				getSideOnRight(atDest[1].getOtherFace(Side.BOTTOM).getCurrentSide())) ||
 			 ( atDest[1].getOtherFace(Side.BOTTOM).getCurrentSide() ==
@@ -788,6 +770,7 @@ public class Manipulator
 	
 	private void stageFourSequenceOne()
 	{
+		this.fired(SolveCase.STAGE_FOUR_SEQUENCE_ONE);
 		rotate(Side.FRONT, 1);
 		rotate(Side.LEFT, 1);
 		rotate(Side.BOTTOM, 3);
@@ -800,6 +783,7 @@ public class Manipulator
 	
 	private void stageFourSequenceTwo(Edge edge1, Edge edge2)
 	{
+		this.fired(SolveCase.STAGE_FOUR_SEQUENCE_TWO);
 		Face otherFace1 = edge1.getOtherFace(Side.BOTTOM);
 		
 		Face otherFace2 = edge2.getOtherFace(Side.BOTTOM);
@@ -842,17 +826,18 @@ public class Manipulator
 		if (amountWithBottomAtDest == 2)
 		{
 			// there are three possibilities
-			ArrayList<Corner> notAtHome = new ArrayList<>();
+			Corner[] notAtHome = this.corners;
+			int count = 0;
 			for (Corner corner : this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM))
 			{
 				if (!corner.getFaceWithDestinationSide(Side.BOTTOM).isAtCorrectSide())
 				{
-					notAtHome.add(corner);
+					notAtHome[count++] = corner;
 				}
 			}
-			Corner notAtHome1 = notAtHome.get(0);
+			Corner notAtHome1 = notAtHome[0];
 			Side notAtHome1Current = notAtHome1.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
-			Corner notAtHome2 = notAtHome.get(1);
+			Corner notAtHome2 = notAtHome[1];
 			Side notAtHome2Current = notAtHome2.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
 			
 			if (notAtHome1Current == notAtHome2Current) // the sides are the same
@@ -903,19 +888,20 @@ public class Manipulator
 		{
 			// there are two possibilities
 			// get the 3 corners
-			ArrayList<Corner> corners = new ArrayList<>();
+			Corner[] corners = this.corners;
+			int count = 0;
 			for (Corner corner : this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM))
 			{
 				if (!corner.getFaceWithDestinationSide(Side.BOTTOM).isAtCorrectSide())
 				{
-					corners.add(corner);
+					corners[count++] = corner;
 				}
 			}
-			Corner firstCorner = corners.get(0);
+			Corner firstCorner = corners[0];
 			Side first = firstCorner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
-			Corner secondCorner = corners.get(1);
+			Corner secondCorner = corners[1];
 			Side second = secondCorner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
-			Corner thirdCorner = corners.get(2);
+			Corner thirdCorner = corners[2];
 			Side third = thirdCorner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
 			Side front = null;
 			
@@ -933,8 +919,9 @@ public class Manipulator
 			}
 			
 			Corner frontPiece = null;
-			for (Corner corner : corners)
+			for (int i = 0; i < count; i++)
 			{
+				Corner corner = corners[i];
 				if (corner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide() == front)
 				{
 					frontPiece = corner;
@@ -954,39 +941,34 @@ public class Manipulator
 		if (amountWithBottomAtDest == 0)
 		{
 			// there are two possibilities
-			Set<Side> sidesWithBottomFaces = new HashSet<>();
+			// the sides with bottom faces on them, as bits by ordinal, and the
+			// first side found
+			int sidesWithBottomFaces = 0;
+			Side firstSide = null;
 			for (Corner corner : this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM))
 			{
-				sidesWithBottomFaces.add(corner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide());
+				Side side = corner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
+				if (firstSide == null) firstSide = side;
+				sidesWithBottomFaces |= 1 << side.ordinal();
 			}
 			
-			if (sidesWithBottomFaces.size() == 2)
+			if (Integer.bitCount(sidesWithBottomFaces) == 2)
 			{
 				// case 4
-				Side front = (Side) sidesWithBottomFaces.toArray()[0];
+				Side front = firstSide;
 				this.stageFiveSequenceOne(this.getSideOnRight(front), Side.BOTTOM);
 				this.stageFiveSequenceOne(this.getSideOnRight(front), Side.BOTTOM);
 			}
 			else   // otherwise three sides are occupied
 			{
 				// case 6
-				ArrayList<Corner> corners = new ArrayList<>();
-				for (Corner corner : this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM))
-				{
-					corners.add(corner);
-				}
-				
-				ArrayList<Side> usedSides = new ArrayList<>();
-				for (Corner corner : corners)
-				{
-					usedSides.add(corner.getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide());
-				}
+				Corner[] corners = this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM);
 				
 				Side hasTwo = null;
-				Side sideOne = usedSides.get(0);
-				Side sideTwo = usedSides.get(1);
-				Side sideThree = usedSides.get(2);
-				Side sideFour = usedSides.get(3);
+				Side sideOne = corners[0].getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
+				Side sideTwo = corners[1].getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
+				Side sideThree = corners[2].getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
+				Side sideFour = corners[3].getFaceWithDestinationSide(Side.BOTTOM).getCurrentSide();
 				if (sideOne == sideTwo || sideOne == sideThree ||sideOne == sideFour)
 				{
 					hasTwo = sideOne;
@@ -1012,6 +994,7 @@ public class Manipulator
 	
 	private void stageFiveSequenceOne(Side right, Side bottom)
 	{
+		this.fired(SolveCase.STAGE_FIVE_SEQUENCE_ONE);
 		this.rotate(right, 3);
 		this.rotate(bottom, 2);
 		this.rotate(right, 1);
@@ -1023,6 +1006,7 @@ public class Manipulator
 	
 	private void stageFiveSequenceTwo(Side right, Side bottom)
 	{
+		this.fired(SolveCase.STAGE_FIVE_SEQUENCE_TWO);
 		this.rotate(right, 3);
 		this.rotate(bottom, 3);
 		this.rotate(right, 1);
@@ -1034,6 +1018,7 @@ public class Manipulator
 	
 	private void stageFiveSequenceThree(Side left, Side bottom)
 	{
+		this.fired(SolveCase.STAGE_FIVE_SEQUENCE_THREE);
 		this.rotate(left, 1);
 		this.rotate(bottom, 2);
 		this.rotate(left, 3);
@@ -1048,11 +1033,7 @@ public class Manipulator
 	 */
 	private void stageSix()
 	{
-		ArrayList<Corner> corners = new ArrayList<>();
-		for (Corner corner : this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM))
-		{
-			corners.add(corner);
-		}
+		Corner[] corners = this.rubiksCube.getCornersWithDestinationSide(Side.BOTTOM);
 		
 		// rotate until at least TWO corners at their destinations
 		int amountAtDestination = 0;
@@ -1076,33 +1057,25 @@ public class Manipulator
 		}
 		else // there has to be 2
 		{
-			// get the two corners
-			ArrayList<Corner> atHome = new ArrayList<>();
-			for (Corner c : corners)
-			{
-				if (c.isAtCorrectPosition())
-				{
-					atHome.add(c);
-				}
-			}
-			
-			// create a set of all the sides occupied (except the bottom)
+			// create a set of all the sides occupied by the two corners at
+			// home (except the bottom), as bits by ordinal
 			// if two corners share a common side, we won't get a repeat and the
 			// length will be 3 not 4
-			Set<Side> sidesOccupied = new HashSet<>();
-			for (Corner corner : atHome)
+			int sidesOccupied = 0;
+			for (Corner corner : corners)
 			{
+				if (!corner.isAtCorrectPosition()) continue;
 				for (Face face : corner.getFaces())
 				{
 					if (face.getCurrentSide() != Side.BOTTOM)
 					{
-						sidesOccupied.add(face.getCurrentSide());
+						sidesOccupied |= 1 << face.getCurrentSide().ordinal();
 					}
 				}
 			}
 			// if the two corners don't share a common side (EXCEPT BOTTOM)
 			// i.e. if the length of sidesOccupied is exactly 4
-			if (sidesOccupied.toArray().length == 4)
+			if (Integer.bitCount(sidesOccupied) == 4)
 			{
 				this.stageSixSequenceOne(Side.LEFT, Side.RIGHT, Side.BOTTOM);
 			}
@@ -1112,11 +1085,10 @@ public class Manipulator
 			else // it has to be 3
 			{
 				// get the front
-				Side[] fourSides = {Side.FRONT, Side.BACK, Side.LEFT, Side.RIGHT};
 				Side left = null;
-				for (Side side : fourSides)
+				for (Side side : FOUR_SIDES)
 				{
-					if (!sidesOccupied.contains(side))
+					if ((sidesOccupied & 1 << side.ordinal()) == 0)
 					{
 						left = this.getOppositeSide(side);
 					}
@@ -1130,6 +1102,7 @@ public class Manipulator
 	
 	private void stageSixSequenceOne(Side left, Side right, Side bottom)
 	{
+		this.fired(SolveCase.STAGE_SIX_SEQUENCE_ONE);
 		this.rotate(left, 1);
 		this.rotate(bottom, 1);
 		this.rotate(left, 3);
@@ -1159,6 +1132,7 @@ public class Manipulator
 	
 	private void stageSixSequenceTwo(Side left, Side right, Side bottom)
 	{
+		this.fired(SolveCase.STAGE_SIX_SEQUENCE_TWO);
 		this.rotate(left, 1);
 		this.rotate(bottom, 1);
 		this.rotate(left, 3);
@@ -1293,6 +1267,7 @@ public class Manipulator
 	private void stageSevenSequenceOne(Side left, Side right, Side top,
 			Side bottom)
 	{
+		this.fired(SolveCase.STAGE_SEVEN_SEQUENCE_ONE);
 		for (int i=0; i<2; i++)
 		{
 			this.rotate(right, 2);
@@ -1308,6 +1283,7 @@ public class Manipulator
 	private void stageSevenSequenceTwo(Side left, Side right, Side front, 
 			Side back)
 	{
+		this.fired(SolveCase.STAGE_SEVEN_SEQUENCE_TWO);
 		this.rotate(right, 1);
 		this.rotate(left, 3);
 		this.rotate(front, 1);
@@ -1327,6 +1303,7 @@ public class Manipulator
 	
 	private void stageSevenLeftSequence(Side right, Side left, Side front)
 	{
+		this.fired(SolveCase.STAGE_SEVEN_LEFT_SEQUENCE);
 		this.rotate(right, 1);
 		this.rotate(left, 3);
 		this.rotate(front, 1);
@@ -1349,6 +1326,7 @@ public class Manipulator
 	
 	private void stageSevenRightSequence(Side right, Side left, Side front)
 	{
+		this.fired(SolveCase.STAGE_SEVEN_RIGHT_SEQUENCE);
 		this.rotate(left, 3);
 		this.rotate(right, 1);
 		this.rotate(front, 3);
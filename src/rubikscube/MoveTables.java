@@ -0,0 +1,164 @@
+package rubikscube;
+
+import java.io.File;
+
+/**
+ * Move tables for the coordinates in Coordinates. Each table holds, for
+ * every value of a coordinate and every move, the value the coordinate has
+ * after the move, so a face turn is one array lookup per coordinate.
+ * Tables are indexed by [coordinate * MOVE_COUNT + move].
+ *
+ * The edge 8 and slice permutations are only kept inside the group reached
+ * by PHASE_TWO_MOVES, so the other moves have no entries in their tables.
+ *
+ * The tables are built the first time they are used and saved with
+ * TableFile, then loaded from the file after that. VERSION must go up
+ * whenever a coordinate or the order of the moves changes.
+ * @author Cathal
+ *
+ */
+public class MoveTables
+{
+	public static final int VERSION = 1;
+	public static final String FILE_NAME = "movetables.bin";
+
+	static final int MOVE_COUNT = CubeState.MOVE_COUNT;
+
+	/**
+	 * The moves that keep the corners twisted 0, the edges flipped 0 and the
+	 * slice edges in the slice: the top and bottom turned any amount, the
+	 * other sides turned 180 degrees.
+	 */
+	public static final int[] PHASE_TWO_MOVES =
+		{CubeState.moveIndex(Side.TOP, 1), CubeState.moveIndex(Side.TOP, 2),
+		 CubeState.moveIndex(Side.TOP, 3), CubeState.moveIndex(Side.BOTTOM, 1),
+		 CubeState.moveIndex(Side.BOTTOM, 2), CubeState.moveIndex(Side.BOTTOM, 3),
+		 CubeState.moveIndex(Side.RIGHT, 2), CubeState.moveIndex(Side.LEFT, 2),
+		 CubeState.moveIndex(Side.FRONT, 2), CubeState.moveIndex(Side.BACK, 2)};
+
+	static final short[] TWIST = new short[Coordinates.TWIST_COUNT * MOVE_COUNT];
+	static final short[] FLIP = new short[Coordinates.FLIP_COUNT * MOVE_COUNT];
+	static final short[] SLICE = new short[Coordinates.SLICE_COUNT * MOVE_COUNT];
+	static final short[] CORNER_PERMUTATION =
+			new short[Coordinates.CORNER_PERMUTATION_COUNT * MOVE_COUNT];
+	static final short[] EDGE8_PERMUTATION =
+			new short[Coordinates.EDGE8_PERMUTATION_COUNT * MOVE_COUNT];
+	static final short[] SLICE_PERMUTATION =
+			new short[Coordinates.SLICE_PERMUTATION_COUNT * MOVE_COUNT];
+
+	static
+	{
+		short[][] tables = {TWIST, FLIP, SLICE, CORNER_PERMUTATION,
+				EDGE8_PERMUTATION, SLICE_PERMUTATION};
+		File file = TableFile.getFile(FILE_NAME);
+		if (!TableFile.read(file, VERSION, tables, new byte[0][]))
+		{
+			build();
+			TableFile.writeQuietly(file, VERSION, tables, new byte[0][]);
+		}
+	}
+
+	private static void build()
+	{
+		CubeState state = new CubeState();
+		for (int twist = 0; twist < Coordinates.TWIST_COUNT; twist++)
+		{
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				state.reset();
+				Coordinates.setTwist(state, twist);
+				state.move(move);
+				TWIST[twist * MOVE_COUNT + move] = (short) Coordinates.getTwist(state);
+			}
+		}
+		for (int flip = 0; flip < Coordinates.FLIP_COUNT; flip++)
+		{
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				state.reset();
+				Coordinates.setFlip(state, flip);
+				state.move(move);
+				FLIP[flip * MOVE_COUNT + move] = (short) Coordinates.getFlip(state);
+			}
+		}
+		for (int slice = 0; slice < Coordinates.SLICE_COUNT; slice++)
+		{
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				state.reset();
+				Coordinates.setSlice(state, slice);
+				state.move(move);
+				SLICE[slice * MOVE_COUNT + move] = (short) Coordinates.getSlice(state);
+			}
+		}
+		for (int rank = 0; rank < Coordinates.CORNER_PERMUTATION_COUNT; rank++)
+		{
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				state.reset();
+				Coordinates.setCornerPermutation(state, rank);
+				state.move(move);
+				CORNER_PERMUTATION[rank * MOVE_COUNT + move] =
+						(short) Coordinates.getCornerPermutation(state);
+			}
+		}
+		for (int rank = 0; rank < Coordinates.EDGE8_PERMUTATION_COUNT; rank++)
+		{
+			for (int move : PHASE_TWO_MOVES)
+			{
+				state.reset();
+				Coordinates.setEdge8Permutation(state, rank);
+				state.move(move);
+				EDGE8_PERMUTATION[rank * MOVE_COUNT + move] =
+						(short) Coordinates.getEdge8Permutation(state);
+			}
+		}
+		for (int rank = 0; rank < Coordinates.SLICE_PERMUTATION_COUNT; rank++)
+		{
+			for (int move : PHASE_TWO_MOVES)
+			{
+				state.reset();
+				Coordinates.setSlicePermutation(state, rank);
+				state.move(move);
+				SLICE_PERMUTATION[rank * MOVE_COUNT + move] =
+						(short) Coordinates.getSlicePermutation(state);
+			}
+		}
+	}
+
+	/**
+	 * Get the twist after a move.
+	 * @param twist the twist before the move
+	 * @param move the move index
+	 * @return the twist after the move
+	 */
+	public static int twist(int twist, int move)
+	{
+		return TWIST[twist * MOVE_COUNT + move];
+	}
+
+	public static int flip(int flip, int move)
+	{
+		return FLIP[flip * MOVE_COUNT + move];
+	}
+
+	public static int slice(int slice, int move)
+	{
+		return SLICE[slice * MOVE_COUNT + move];
+	}
+
+	public static int cornerPermutation(int rank, int move)
+	{
+		return CORNER_PERMUTATION[rank * MOVE_COUNT + move] & 0xFFFF;
+	}
+
+	public static int edge8Permutation(int rank, int move)
+	{
+		return EDGE8_PERMUTATION[rank * MOVE_COUNT + move] & 0xFFFF;
+	}
+
+	public static int slicePermutation(int rank, int move)
+	{
+		return SLICE_PERMUTATION[rank * MOVE_COUNT + move];
+	}
+}
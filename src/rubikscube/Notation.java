@@ -0,0 +1,147 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads moves written in standard notation: a letter for the side, U top,
+ * D bottom, R right, L left, F front or B back, turned 90 degrees clockwise
+ * looking at that side, or twice with a 2 after it, or anticlockwise with a
+ * ' after it. Moves may be separated by spaces or not, so "R U' F2" and
+ * "RU'F2" are the same.
+ *
+ * Moves are given as move indices (see CubeState.moveIndex), and written
+ * back separated by spaces. A list of
+ * moves can be compiled into a CubeState, which applies them all to any
+ * other state in one go with CubeState.apply.
+ * @author Cathal
+ *
+ */
+public class Notation
+{
+	private static final String LETTERS = "UDRLFB";
+	private static final Side[] SIDES =
+		{Side.TOP, Side.BOTTOM, Side.RIGHT, Side.LEFT, Side.FRONT, Side.BACK};
+
+	/**
+	 * Read a list of moves.
+	 * @param notation the moves in standard notation
+	 * @return the move indices
+	 * @throws IllegalArgumentException if the notation can't be read
+	 */
+	public static byte[] parse(CharSequence notation)
+	{
+		byte[] moves = new byte[count(notation)];
+		int count = 0;
+		int length = notation.length();
+		for (int i = 0; i < length; i++)
+		{
+			char letter = notation.charAt(i);
+			if (Character.isWhitespace(letter)) continue;
+			int side = LETTERS.indexOf(letter);
+			if (side < 0)
+			{
+				throw new IllegalArgumentException("Not a move at " + i + ": " + letter);
+			}
+			int amount = 1;
+			if (i + 1 < length && notation.charAt(i + 1) == '2')
+			{
+				amount = 2;
+				i++;
+			}
+			if (i + 1 < length && notation.charAt(i + 1) == '\'')
+			{
+				amount = 4 - amount;
+				i++;
+			}
+			moves[count++] = (byte) CubeState.moveIndex(SIDES[side], amount);
+		}
+		return moves;
+	}
+
+	/**
+	 * Count the moves of some notation, that is the letters in it.
+	 */
+	private static int count(CharSequence notation)
+	{
+		int count = 0;
+		for (int i = 0; i < notation.length(); i++)
+		{
+			if (LETTERS.indexOf(notation.charAt(i)) >= 0) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Compile a list of moves into the state they take the solved state to.
+	 * @param moves the move indices
+	 * @return the state, to be given to CubeState.apply
+	 */
+	public static CubeState compile(byte[] moves)
+	{
+		CubeState compiled = new CubeState();
+		compiled.move(moves);
+		return compiled;
+	}
+
+	/**
+	 * Compile moves in standard notation into the state they take the solved
+	 * state to.
+	 * @param notation the moves in standard notation
+	 * @return the state, to be given to CubeState.apply
+	 * @throws IllegalArgumentException if the notation can't be read
+	 */
+	public static CubeState compile(CharSequence notation)
+	{
+		return compile(parse(notation));
+	}
+
+	/**
+	 * Get the letter of the side a move turns.
+	 * @param move the move index
+	 * @return the letter, one of UDRLFB
+	 */
+	public static char getLetter(int move)
+	{
+		return LETTERS.charAt(move / 3);
+	}
+
+	/**
+	 * Write moves in standard notation, separated by spaces.
+	 * @param moves the move indices
+	 * @param length the number of moves to write
+	 * @param out where to write them
+	 * @throws IOException if out can't be written to
+	 */
+	public static void append(byte[] moves, int length, Appendable out) throws IOException
+	{
+		for (int i = 0; i < length; i++)
+		{
+			if (i > 0) out.append(' ');
+			out.append(getLetter(moves[i]));
+			int amount = CubeState.moveAmount(moves[i]);
+			if (amount == 2) out.append('2');
+			else if (amount == 3) out.append('\'');
+		}
+	}
+
+	/**
+	 * Get moves in standard notation, separated by spaces.
+	 * @param moves the move indices
+	 * @return the notation
+	 */
+	public static String toString(byte[] moves)
+	{
+		StringBuilder builder = new StringBuilder(moves.length * 3);
+		try
+		{
+			append(moves, moves.length, builder);
+		}
+		catch (IOException e)
+		{
+			// a StringBuilder doesn't throw
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,331 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the shortest solutions of a rubiks cube, to compare the solutions
+ * of the other solvers with.
+ *
+ * The search is iterative deepening A*: depth first searches for solutions
+ * of 0 moves, then 1, and so on, leaving out any state whose moves so far
+ * plus the most moves any pattern database says it still needs are more
+ * than the length being searched for. The first solution found is as short
+ * as any can be.
+ *
+ * Hard cubes can take a long time, so a search can be given a time and node
+ * budget, after which it gives up.
+ *
+ * Given a ForkJoinPool, each depth is searched in parallel: the tree is
+ * split into subtrees SPLIT_DEPTH moves down, which the pool's threads
+ * search and steal from each other. They share the depth being searched, the
+ * budget and a flag telling them to stop, which is set as soon as one finds
+ * a solution.
+ *
+ * A solver can only do one solve at a time. The pattern databases are
+ * shared.
+ * @author Cathal
+ *
+ */
+public class OptimalSolver implements CubeSolver
+{
+	/**
+	 * Every cube can be solved in 20 moves.
+	 */
+	public static final int MAX_LENGTH = 20;
+
+	/**
+	 * In a parallel search, each subtree under this many moves is a task.
+	 */
+	public static final int SPLIT_DEPTH = 3;
+
+	private static final int MOVE_COUNT = CubeState.MOVE_COUNT;
+
+	private final ForkJoinPool pool;
+	private long nodes;
+
+	/**
+	 * Create a solver that searches on the calling thread.
+	 */
+	public OptimalSolver()
+	{
+		this.pool = null;
+	}
+
+	/**
+	 * Create a solver that splits each search into subtrees and searches them
+	 * in parallel on a pool.
+	 * @param pool the pool to search on
+	 */
+	public OptimalSolver(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Find a shortest solution of a cube state, however long it takes.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex)
+	 */
+	@Override
+	public byte[] solve(CubeState state)
+	{
+		return this.solve(state, Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Find a shortest solution of a cube state, giving up when either the
+	 * time or node budget runs out.
+	 * @param state the state to solve, which is not changed
+	 * @param timeoutMillis how long to search for
+	 * @param maxNodes the most states to look at
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex), or null if the budget ran out first
+	 */
+	public byte[] solve(CubeState state, long timeoutMillis, long maxNodes)
+	{
+		Control control = new Control(timeoutMillis, maxNodes);
+		int corners = PatternDatabases.getCorners(state);
+		int edgesA = PatternDatabases.getEdgeGroup(state, 0);
+		int edgesB = PatternDatabases.getEdgeGroup(state, PatternDatabases.GROUP_SIZE);
+		for (int bound = estimate(corners, edgesA, edgesB);
+				bound <= MAX_LENGTH && !control.stopped; bound++)
+		{
+			if (this.pool == null)
+			{
+				Search search = new Search(control);
+				if (search.search(corners, edgesA, edgesB, 0, bound))
+				{
+					control.found(search.moves, bound);
+				}
+				search.finish();
+			}
+			else
+			{
+				this.pool.invoke(new SubtreeTask(control, new int[0], corners, edgesA,
+						edgesB, bound));
+			}
+		}
+		this.nodes = control.nodes.get();
+
+		int[] moves = control.solution.get();
+		if (moves == null) return null;
+		byte[] solution = new byte[moves.length];
+		for (int i = 0; i < moves.length; i++)
+		{
+			solution[i] = (byte) moves[i];
+		}
+		return solution;
+	}
+
+	/**
+	 * Get the number of states looked at in the last solve.
+	 * @return the number of nodes searched
+	 */
+	public long getNodes()
+	{
+		return this.nodes;
+	}
+
+	/**
+	 * What the searches of one solve share: the budget, the nodes searched
+	 * so far, and whether they should stop, which they check at every node.
+	 */
+	private static class Control
+	{
+		private final long deadline;
+		private final long maxNodes;
+		private final AtomicLong nodes = new AtomicLong();
+		private final AtomicReference<int[]> solution = new AtomicReference<>();
+		private volatile boolean stopped;
+
+		private Control(long timeoutMillis, long maxNodes)
+		{
+			long now = System.nanoTime();
+			this.deadline = timeoutMillis >= (Long.MAX_VALUE - now) / 1000000L ?
+					Long.MAX_VALUE : now + timeoutMillis * 1000000L;
+			this.maxNodes = maxNodes;
+		}
+
+		/**
+		 * Keep the first solution found and stop every search.
+		 */
+		private void found(int[] moves, int length)
+		{
+			int[] solution = new int[length];
+			System.arraycopy(moves, 0, solution, 0, length);
+			this.solution.compareAndSet(null, solution);
+			this.stopped = true;
+		}
+
+		/**
+		 * Add nodes searched and stop every search if the budget is used up.
+		 */
+		private void addNodes(long count)
+		{
+			if (this.nodes.addAndGet(count) > this.maxNodes ||
+					System.nanoTime() > this.deadline)
+			{
+				this.stopped = true;
+			}
+		}
+	}
+
+	/**
+	 * A depth first search of one tree, from the root or from a subtree.
+	 */
+	private static class Search
+	{
+		private static final int BATCH = 0x400;
+
+		private final Control control;
+		private final int[] moves = new int[MAX_LENGTH];
+		private long nodes;
+
+		private Search(Control control)
+		{
+			this.control = control;
+		}
+
+		/**
+		 * Search for solutions of exactly bound moves.
+		 * @return true if one was found, which is left in moves
+		 */
+		private boolean search(int corners, int edgesA, int edgesB, int depth,
+				int bound)
+		{
+			int estimate = estimate(corners, edgesA, edgesB);
+			if (estimate == 0) return depth == bound;
+			if (depth + estimate > bound || this.isStopped()) return false;
+
+			int twist = corners % Coordinates.TWIST_COUNT;
+			int permutation = corners / Coordinates.TWIST_COUNT;
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				if (isRedundant(this.moves, move, depth)) continue;
+				this.moves[depth] = move;
+				if (this.search(
+						MoveTables.cornerPermutation(permutation, move) *
+						Coordinates.TWIST_COUNT + MoveTables.twist(twist, move),
+						PatternDatabases.moveEdgeGroup(edgesA, move),
+						PatternDatabases.moveEdgeGroup(edgesB, move), depth + 1, bound))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Count the node, handing the count to the control every batch of
+		 * nodes so the budget is only checked now and then.
+		 */
+		private boolean isStopped()
+		{
+			this.nodes++;
+			if (this.nodes == BATCH)
+			{
+				this.control.addNodes(BATCH);
+				this.nodes = 0;
+			}
+			return this.control.stopped;
+		}
+
+		private void finish()
+		{
+			this.control.addNodes(this.nodes);
+			this.nodes = 0;
+		}
+	}
+
+	/**
+	 * Searches the subtree under some moves. Above SPLIT_DEPTH it forks a
+	 * task for each move, so idle threads of the pool can steal subtrees;
+	 * from there it searches depth first.
+	 */
+	@SuppressWarnings("serial")
+	private static class SubtreeTask extends RecursiveAction
+	{
+		private final Control control;
+		private final int[] moves;
+		private final int corners;
+		private final int edgesA;
+		private final int edgesB;
+		private final int bound;
+
+		private SubtreeTask(Control control, int[] moves, int corners, int edgesA,
+				int edgesB, int bound)
+		{
+			this.control = control;
+			this.moves = moves;
+			this.corners = corners;
+			this.edgesA = edgesA;
+			this.edgesB = edgesB;
+			this.bound = bound;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int depth = this.moves.length;
+			int estimate = estimate(this.corners, this.edgesA, this.edgesB);
+			if (this.control.stopped || depth + estimate > this.bound) return;
+
+			if (depth < SPLIT_DEPTH && estimate > 0)
+			{
+				ArrayList<SubtreeTask> subtrees = new ArrayList<>();
+				int twist = this.corners % Coordinates.TWIST_COUNT;
+				int permutation = this.corners / Coordinates.TWIST_COUNT;
+				for (int move = 0; move < MOVE_COUNT; move++)
+				{
+					if (isRedundant(this.moves, move, depth)) continue;
+					int[] moves = Arrays.copyOf(this.moves, depth + 1);
+					moves[depth] = move;
+					subtrees.add(new SubtreeTask(this.control, moves,
+							MoveTables.cornerPermutation(permutation, move) *
+							Coordinates.TWIST_COUNT + MoveTables.twist(twist, move),
+							PatternDatabases.moveEdgeGroup(this.edgesA, move),
+							PatternDatabases.moveEdgeGroup(this.edgesB, move),
+							this.bound));
+				}
+				invokeAll(subtrees);
+				return;
+			}
+
+			Search search = new Search(this.control);
+			System.arraycopy(this.moves, 0, search.moves, 0, depth);
+			if (search.search(this.corners, this.edgesA, this.edgesB, depth, this.bound))
+			{
+				this.control.found(search.moves, this.bound);
+			}
+			search.finish();
+		}
+	}
+
+	/**
+	 * A move is redundant after a move of the same side, or after a move of
+	 * the opposite side that comes later in the order of the sides.
+	 */
+	private static boolean isRedundant(int[] moves, int move, int depth)
+	{
+		if (depth == 0) return false;
+		int side = move / 3;
+		int lastSide = moves[depth - 1] / 3;
+		return side == lastSide || (side / 2 == lastSide / 2 && side < lastSide);
+	}
+
+	/**
+	 * Get the fewest moves the pattern databases say a state needs.
+	 */
+	private static int estimate(int corners, int edgesA, int edgesB)
+	{
+		return Math.max(PatternDatabases.get(PatternDatabases.CORNERS, corners),
+				Math.max(PatternDatabases.get(PatternDatabases.EDGES_A, edgesA),
+						PatternDatabases.get(PatternDatabases.EDGES_B, edgesB)));
+	}
+}
@@ -0,0 +1,244 @@
+package rubikscube;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Pattern databases for the optimal solver. Each gives the fewest moves
+ * needed to solve part of the cube, which is never more than the moves
+ * needed to solve all of it:
+ * - the corners: every permutation and twist, 88179840 entries
+ * - edges 0 to 5, and edges 6 to 11: the positions and flips of the six
+ * edges, 42577920 entries each
+ * Entries are packed 4 bits each, two to a byte, low bits first.
+ *
+ * An edge group coordinate is the rank of the positions of its six edges,
+ * times 64, plus a bit for the flip of each of the six edges. The moves of
+ * the positions and flips don't depend on which edges are in the group, so
+ * both groups share EDGE_GROUP_MOVE and EDGE_GROUP_FLIP.
+ *
+ * The databases are saved with TableFile the first time they are built,
+ * which takes a while.
+ * @author Cathal
+ *
+ */
+class PatternDatabases
+{
+	static final int VERSION = 1;
+	static final String FILE_NAME = "patterns.bin";
+
+	static final int GROUP_SIZE = 6;
+	static final int EDGE_GROUP_POSITION_COUNT = 665280;    // 12*11*10*9*8*7
+	static final int EDGE_GROUP_COUNT = EDGE_GROUP_POSITION_COUNT << GROUP_SIZE;
+	static final int CORNER_COUNT =
+			Coordinates.CORNER_PERMUTATION_COUNT * Coordinates.TWIST_COUNT;
+
+	private static final int MOVE_COUNT = CubeState.MOVE_COUNT;
+	private static final int EMPTY = 0xF;
+
+	static final byte[] CORNERS = new byte[(CORNER_COUNT + 1) / 2];
+	static final byte[] EDGES_A = new byte[(EDGE_GROUP_COUNT + 1) / 2];
+	static final byte[] EDGES_B = new byte[(EDGE_GROUP_COUNT + 1) / 2];
+
+	// indexed by [position rank * MOVE_COUNT + move]
+	static final int[] EDGE_GROUP_MOVE = new int[EDGE_GROUP_POSITION_COUNT * MOVE_COUNT];
+	static final byte[] EDGE_GROUP_FLIP = new byte[EDGE_GROUP_POSITION_COUNT * MOVE_COUNT];
+
+	/**
+	 * Moves from one coordinate to the next, for building a database.
+	 */
+	private interface Transition
+	{
+		int next(int index, int move);
+	}
+
+	static
+	{
+		buildEdgeGroupMoves();
+
+		byte[][] tables = {CORNERS, EDGES_A, EDGES_B};
+		File file = TableFile.getFile(FILE_NAME);
+		if (!TableFile.read(file, VERSION, new short[0][], tables))
+		{
+			buildDepths(CORNERS, CORNER_COUNT, 0, new Transition()
+			{
+				public int next(int index, int move)
+				{
+					int corners = index / Coordinates.TWIST_COUNT;
+					int twist = index % Coordinates.TWIST_COUNT;
+					return MoveTables.cornerPermutation(corners, move) *
+							Coordinates.TWIST_COUNT + MoveTables.twist(twist, move);
+				}
+			});
+			Transition edges = new Transition()
+			{
+				public int next(int index, int move)
+				{
+					return moveEdgeGroup(index, move);
+				}
+			};
+			CubeState solved = new CubeState();
+			buildDepths(EDGES_A, EDGE_GROUP_COUNT, getEdgeGroup(solved, 0), edges);
+			buildDepths(EDGES_B, EDGE_GROUP_COUNT, getEdgeGroup(solved, GROUP_SIZE), edges);
+			TableFile.writeQuietly(file, VERSION, new short[0][], tables);
+		}
+	}
+
+	/**
+	 * Get the entry for an index of a database.
+	 * @param database the database
+	 * @param index the index of the entry
+	 * @return the fewest moves to solve that part of the cube
+	 */
+	static int get(byte[] database, int index)
+	{
+		return (database[index >>> 1] >>> ((index & 1) << 2)) & 0xF;
+	}
+
+	private static void set(byte[] database, int index, int value)
+	{
+		int shift = (index & 1) << 2;
+		database[index >>> 1] =
+				(byte) ((database[index >>> 1] & ~(0xF << shift)) | (value << shift));
+	}
+
+	/**
+	 * Get the corner coordinate of a state.
+	 * @param state the state to read
+	 * @return the index of the state in CORNERS
+	 */
+	static int getCorners(CubeState state)
+	{
+		return Coordinates.getCornerPermutation(state) * Coordinates.TWIST_COUNT +
+				Coordinates.getTwist(state);
+	}
+
+	/**
+	 * Get the edge group coordinate of six edges of a state.
+	 * @param state the state to read
+	 * @param firstEdge 0 for EDGES_A, GROUP_SIZE for EDGES_B
+	 * @return the index of the state in the database of the group
+	 */
+	static int getEdgeGroup(CubeState state, int firstEdge)
+	{
+		int rank = 0;
+		int flips = 0;
+		for (int i = 0; i < GROUP_SIZE; i++)
+		{
+			int position = state.getEdgePosition(firstEdge + i);
+			int smaller = 0;
+			for (int j = 0; j < i; j++)
+			{
+				if (state.getEdgePosition(firstEdge + j) < position) smaller++;
+			}
+			rank = rank * (CubeState.EDGE_COUNT - i) + position - smaller;
+			flips |= state.getEdgeOrientation(firstEdge + i) << i;
+		}
+		return (rank << GROUP_SIZE) | flips;
+	}
+
+	/**
+	 * Get an edge group coordinate after a move.
+	 * @param group the coordinate before the move
+	 * @param move the move index
+	 * @return the coordinate after the move
+	 */
+	static int moveEdgeGroup(int group, int move)
+	{
+		int index = (group >>> GROUP_SIZE) * MOVE_COUNT + move;
+		return (EDGE_GROUP_MOVE[index] << GROUP_SIZE) |
+				((group & ((1 << GROUP_SIZE) - 1)) ^ EDGE_GROUP_FLIP[index]);
+	}
+
+	private static void buildEdgeGroupMoves()
+	{
+		int[] positions = new int[GROUP_SIZE];
+		int[] moved = new int[GROUP_SIZE];
+		boolean[] used = new boolean[CubeState.EDGE_COUNT];
+		for (int rank = 0; rank < EDGE_GROUP_POSITION_COUNT; rank++)
+		{
+			// the digits of the rank pick the positions out of those not used
+			Arrays.fill(used, false);
+			int rest = rank;
+			int divisor = EDGE_GROUP_POSITION_COUNT;
+			for (int i = 0; i < GROUP_SIZE; i++)
+			{
+				divisor /= CubeState.EDGE_COUNT - i;
+				int skip = rest / divisor;
+				rest %= divisor;
+				int position = 0;
+				while (used[position] || skip > 0)
+				{
+					if (!used[position]) skip--;
+					position++;
+				}
+				used[position] = true;
+				positions[i] = position;
+			}
+
+			for (int move = 0; move < MOVE_COUNT; move++)
+			{
+				int flips = 0;
+				int movedRank = 0;
+				for (int i = 0; i < GROUP_SIZE; i++)
+				{
+					moved[i] = CubeState.edgeMovePosition(move, positions[i]);
+					flips |= CubeState.edgeMoveFlip(move, positions[i]) << i;
+					int smaller = 0;
+					for (int j = 0; j < i; j++)
+					{
+						if (moved[j] < moved[i]) smaller++;
+					}
+					movedRank = movedRank * (CubeState.EDGE_COUNT - i) + moved[i] - smaller;
+				}
+				EDGE_GROUP_MOVE[rank * MOVE_COUNT + move] = movedRank;
+				EDGE_GROUP_FLIP[rank * MOVE_COUNT + move] = (byte) flips;
+			}
+		}
+	}
+
+	/**
+	 * Fill a database by a breadth first search out from the solved entry.
+	 * Once most entries are filled, it is quicker to look for the empty
+	 * entries next to one at the last depth than the other way round.
+	 */
+	private static void buildDepths(byte[] database, int size, int solved,
+			Transition transition)
+	{
+		Arrays.fill(database, (byte) 0xFF);
+		set(database, solved, 0);
+		int done = 1;
+		for (int depth = 0; done < size; depth++)
+		{
+			boolean backwards = done > size / 2;
+			for (int index = 0; index < size; index++)
+			{
+				int value = get(database, index);
+				if (!backwards && value == depth)
+				{
+					for (int move = 0; move < MOVE_COUNT; move++)
+					{
+						int next = transition.next(index, move);
+						if (get(database, next) == EMPTY)
+						{
+							set(database, next, depth + 1);
+							done++;
+						}
+					}
+				}
+				else if (backwards && value == EMPTY)
+				{
+					for (int move = 0; move < MOVE_COUNT; move++)
+					{
+						if (get(database, transition.next(index, move)) == depth)
+						{
+							set(database, index, depth + 1);
+							done++;
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -10,6 +10,11 @@ import java.util.HashMap;
 public abstract class Piece
 {
 	private Face[] faces;
+	// set when the piece is a view over a cube state: the faces indexed by
+	// their index in the sides of the cubie
+	private CubeState state;
+	private int cubie;
+	private Face[] facesByIndex;
 	
 	/**
 	 * Create a piece with an array of sides to make faces.
@@ -43,6 +48,43 @@ public abstract class Piece
 		}
 	}
 	
+	/**
+	 * Create a piece that is a view over a cubie of a cube state. The faces
+	 * are in the order of the given destination sides.
+	 * @param sides the destination sides of the faces
+	 * @param state the state the cubie is in
+	 * @param cubie the corner or edge cubie of the piece
+	 */
+	Piece(Side[] sides, CubeState state, int cubie)
+	{
+		boolean corner = sides.length == 3;
+		Side[] homeSides = corner ? CubeState.CORNER_SIDES[cubie] :
+			CubeState.EDGE_SIDES[cubie];
+		this.state = state;
+		this.cubie = cubie;
+		this.faces = new Face[sides.length];
+		this.facesByIndex = new Face[sides.length];
+		for (int i = 0; i < sides.length; i++)
+		{
+			this.faces[i] = new Face(sides[i], state, cubie, corner);
+			this.facesByIndex[CubeState.indexOf(homeSides, sides[i])] = this.faces[i];
+		}
+	}
+	
+	/**
+	 * Get the index of the face of a view over a cube state that is on a
+	 * side, looked up from the position of its cubie.
+	 * @return the index in facesByIndex, or -1 if no face is on the side
+	 */
+	private int getFaceIndexOn(Side side)
+	{
+		if (this.facesByIndex.length == 3)
+		{
+			return this.state.getCornerFaceOn(this.cubie, side);
+		}
+		return this.state.getEdgeFaceOn(this.cubie, side);
+	}
+	
 	/**
 	 * Get an array of the faces of the piece.
 	 * @return an array of the piece's faces
@@ -74,6 +116,10 @@ public abstract class Piece
 	 */
 	public boolean hasFaceWithCurrentSide(Side side)
 	{
+		if (this.state != null)
+		{
+			return this.getFaceIndexOn(side) >= 0;
+		}
 		for (Face face : this.faces)
 		{
 			if (face.getCurrentSide() == side) {
@@ -97,6 +143,7 @@ public abstract class Piece
 	
 	/**
 	 * Rotate the piece in accordance with rotation data.
+	 * (Precondition: the piece is not part of a RubiksCube)
 	 * @param sideMap the map of sides showing which sides change to which
 	 */
 	public void rotate(HashMap<Side, Side> sideMap)
@@ -136,6 +183,11 @@ public abstract class Piece
 	 */
 	public Face getFaceWithCurrentSide(Side side)
 	{
+		if (this.state != null)
+		{
+			int index = this.getFaceIndexOn(side);
+			return index < 0 ? null : this.facesByIndex[index];
+		}
 		for (Face face : this.faces) 
 		{
 			if (face.getCurrentSide() == side)
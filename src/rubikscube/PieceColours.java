@@ -0,0 +1,92 @@
+package rubikscube;
+
+/**
+ * Reads a cube given as the colours of its 20 pieces, the way the solver
+ * model asks for them: for each position in POSITIONS, the colours of the
+ * piece at it, in the order of the colours of the position's sides. For
+ * example POSITIONS[0] is "wrb", the corner on the white, red and blue
+ * sides, so "rgw" there means red is on the white side, green on the red
+ * side and white on the blue side.
+ *
+ * The colours are w white (top), y yellow (bottom), r red (front), o orange
+ * (back), b blue (right) and g green (left).
+ * @author Cathal
+ *
+ */
+public class PieceColours
+{
+	public static final String[] POSITIONS = {"wrb", "wr", "wrg", "wb", "wg", "wob",
+			"wo", "wog", "rb", "rg", "ob", "og", "yrb", "yr", "yrg", "yb", "yg",
+			"yob", "yo", "yog"};
+
+	/**
+	 * Set a state from the colours of its pieces.
+	 * @param pieces the colours of the piece at each of POSITIONS
+	 * @param state the state to set
+	 * @throws IllegalArgumentException if the colours aren't the pieces of a
+	 * rubiks cube
+	 */
+	public static void decode(String[] pieces, CubeState state)
+	{
+		if (pieces.length != POSITIONS.length)
+		{
+			throw new IllegalArgumentException("A rubiks cube has " + POSITIONS.length
+					+ " pieces, not " + pieces.length);
+		}
+		state.reset();
+		Side[][] destination = {new Side[2], new Side[3]};
+		Side[][] current = {new Side[2], new Side[3]};
+		int used = 0;
+		for (int i = 0; i < POSITIONS.length; i++)
+		{
+			int length = POSITIONS[i].length();
+			if (pieces[i] == null || pieces[i].length() != length)
+			{
+				throw new IllegalArgumentException("The piece at " + POSITIONS[i]
+						+ " needs " + length + " colours: " + pieces[i]);
+			}
+			Side[] destinationSides = destination[length - 2];
+			Side[] currentSides = current[length - 2];
+			for (int j = 0; j < length; j++)
+			{
+				destinationSides[j] = getSide(pieces[i].charAt(j));
+				currentSides[j] = getSide(POSITIONS[i].charAt(j));
+			}
+			int piece = state.place(destinationSides, currentSides);
+			if (length == 3) piece += CubeState.EDGE_COUNT;
+			if ((used & (1 << piece)) != 0)
+			{
+				throw new IllegalArgumentException("The piece " + pieces[i]
+						+ " is on the cube twice");
+			}
+			used |= 1 << piece;
+		}
+	}
+
+	/**
+	 * Get the side a colour belongs on.
+	 * @param colour the first letter of the colour, in either case
+	 * @return the side
+	 * @throws IllegalArgumentException if the letter isn't a colour
+	 */
+	public static Side getSide(char colour)
+	{
+		switch (Character.toLowerCase(colour))
+		{
+		case 'w':
+			return Side.TOP;
+		case 'y':
+			return Side.BOTTOM;
+		case 'r':
+			return Side.FRONT;
+		case 'o':
+			return Side.BACK;
+		case 'b':
+			return Side.RIGHT;
+		case 'g':
+			return Side.LEFT;
+		default:
+			throw new IllegalArgumentException("Not a colour: " + colour);
+		}
+	}
+}
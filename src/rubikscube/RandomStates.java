@@ -0,0 +1,119 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Makes random states that a real cube can be in, each as likely as any
+ * other, by shuffling the corners and edges and turning them at random
+ * rather than by making random moves. The edges are swapped once more if
+ * they were swapped an odd number of times and the corners an even number,
+ * or the other way round, and the last corner and edge are turned to make
+ * the twist and flip add up, so every state made can be solved.
+ *
+ * The same seed always gives the same states, so a corpus of states for
+ * benchmarking or testing can be made again from its seed. A RandomStates
+ * is for one thread at a time.
+ * @author Cathal
+ *
+ */
+public class RandomStates
+{
+	private final SplittableRandom random;
+	// indexed by position: the cubie put there
+	private final int[] corners = new int[CubeState.CORNER_COUNT];
+	private final int[] edges = new int[CubeState.EDGE_COUNT];
+
+	/**
+	 * Create a generator of random states.
+	 * @param seed the seed of the states made
+	 */
+	public RandomStates(long seed)
+	{
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Change a state to the next random state.
+	 * @param state the state to change
+	 */
+	public void next(CubeState state)
+	{
+		int parity = this.shuffle(this.corners);
+		if (this.shuffle(this.edges) != parity)
+		{
+			int last = CubeState.EDGE_COUNT - 1;
+			int cubie = this.edges[last];
+			this.edges[last] = this.edges[last - 1];
+			this.edges[last - 1] = cubie;
+		}
+
+		int twist = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT - 1; position++)
+		{
+			int orientation = this.random.nextInt(3);
+			state.setCorner(this.corners[position], position, orientation);
+			twist += orientation;
+		}
+		int last = CubeState.CORNER_COUNT - 1;
+		state.setCorner(this.corners[last], last, (3 - twist % 3) % 3);
+
+		int flip = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT - 1; position++)
+		{
+			int orientation = this.random.nextInt(2);
+			state.setEdge(this.edges[position], position, orientation);
+			flip += orientation;
+		}
+		last = CubeState.EDGE_COUNT - 1;
+		state.setEdge(this.edges[last], last, flip & 1);
+	}
+
+	/**
+	 * Put the cubies in a random order, each as likely as any other.
+	 * @return 1 if the order is swapped from 0, 1, 2... an odd number of
+	 * times, 0 if an even number
+	 */
+	private int shuffle(int[] cubies)
+	{
+		for (int i = 0; i < cubies.length; i++)
+		{
+			cubies[i] = i;
+		}
+		int parity = 0;
+		for (int i = cubies.length - 1; i > 0; i--)
+		{
+			int j = this.random.nextInt(i + 1);
+			if (j != i)
+			{
+				int cubie = cubies[i];
+				cubies[i] = cubies[j];
+				cubies[j] = cubie;
+				parity ^= 1;
+			}
+		}
+		return parity;
+	}
+
+	/**
+	 * Write a state file (see StateFile) of random states.
+	 * @param file the file to write, which is replaced if it is there
+	 * @param count the number of states
+	 * @param seed the seed of the states
+	 * @throws IOException if the file can't be written
+	 */
+	public static void writeCorpus(File file, long count, long seed) throws IOException
+	{
+		RandomStates states = new RandomStates(seed);
+		CubeState state = new CubeState();
+		try (StateFileWriter writer = new StateFileWriter(file))
+		{
+			for (long i = 0; i < count; i++)
+			{
+				states.next(state);
+				writer.write(state);
+			}
+		}
+	}
+}
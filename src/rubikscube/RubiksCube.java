@@ -2,14 +2,18 @@ package rubikscube;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
 
 /**
  * A rubiks cube has 8 corners and 12 edges.
  * The sides of the rubiks cube can rotate.
+ * The positions of the pieces are kept in a packed CubeState; the corners,
+ * edges and their faces are views over it.
  * @author Cathal
  *
  */
@@ -17,6 +21,21 @@ public class RubiksCube
 {
 	private Corner[] corners;
 	private Edge[] edges;
+	private CubeState state;
+	// indexed by [side]: the pieces with and without a destination side, in
+	// the order of corners and edges. indexPieces fills the arrays in place
+	// on every setState, so they are never made again. Every side has four
+	// edges and four corners with that side, which leaves eight edges and
+	// four corners without it
+	private final Edge[][] edgesWithSide = new Edge[6][4];
+	private final Edge[][] edgesWithoutSide = new Edge[6][8];
+	private final Corner[][] cornersWithSide = new Corner[6][4];
+	private final Corner[][] cornersWithoutSide = new Corner[6][4];
+	// indexed by [cubie][the order of its faces, from EDGE_FIRST_FACE and
+	// CORNER_FACE_ORDER]: the pieces setState chooses from, each made the
+	// first time it is needed
+	private final Edge[][] edgeViews = new Edge[12][2];
+	private final Corner[][] cornerViews = new Corner[8][9];
 	
 	public static final Side[][] CORNER_POSITIONS = 
 		{{Side.TOP,    Side.FRONT, Side.LEFT},
@@ -42,64 +61,70 @@ public class RubiksCube
 		 {Side.BACK,   Side.LEFT},
 		 {Side.BACK,   Side.RIGHT}
 		};
-	public static final HashMap<Side, HashMap<Side,Side>> ROTATION_DATA =
-			new HashMap<Side, HashMap<Side, Side>>();
+	// indexes of the positions in the order the solver model lists them: the
+	// top layer, the middle layer, then the bottom layer
+	private static final int[] EDGE_ORDER = {0, 3, 2, 1, 9, 8, 11, 10, 4, 7, 6, 5};
+	private static final int[] CORNER_ORDER = {1, 0, 3, 2, 5, 4, 7, 6};
+	// Side.values() makes a new array each call
+	private static final Side[] SIDES = Side.values();
+	// indexed by the place in EDGE_ORDER and CORNER_ORDER: the position in
+	// the cube state
+	private static final int[] EDGE_STATE_POSITIONS = new int[EDGE_ORDER.length];
+	private static final int[] CORNER_STATE_POSITIONS = new int[CORNER_ORDER.length];
+	// indexed by [place in EDGE_ORDER or CORNER_ORDER][orientation]: the
+	// order of the faces of a cubie there, as the index of the face on the
+	// first side of the position for an edge, and 3 times that plus the index
+	// of the face on the second side for a corner
+	private static final int[][] EDGE_FIRST_FACE = new int[EDGE_ORDER.length][2];
+	private static final int[][] CORNER_FACE_ORDER = new int[CORNER_ORDER.length][3];
+	/**
+	 * Where a quarter turn clockwise of each side sends each of the six
+	 * sides. It is built once and can't be changed, so it can be read from
+	 * any thread.
+	 */
+	public static final Map<Side, Map<Side, Side>> ROTATION_DATA;
 	
 	// create map rotation data
+	static
 	{
-	HashMap<Side, Side> topMap = new HashMap<>();
-	topMap.put(Side.FRONT, Side.LEFT);
-	topMap.put(Side.LEFT, Side.BACK);
-	topMap.put(Side.BACK, Side.RIGHT);
-	topMap.put(Side.RIGHT, Side.FRONT);
-	topMap.put(Side.TOP, Side.TOP);
-	topMap.put(Side.BOTTOM, Side.BOTTOM);
-	ROTATION_DATA.put(Side.TOP, topMap);
-
-	HashMap<Side, Side> bottomMap = new HashMap<>();
-	bottomMap.put(Side.FRONT, Side.RIGHT);
-	bottomMap.put(Side.RIGHT, Side.BACK);
-	bottomMap.put(Side.BACK, Side.LEFT);
-	bottomMap.put(Side.LEFT, Side.FRONT);
-	bottomMap.put(Side.BOTTOM, Side.BOTTOM);
-	bottomMap.put(Side.TOP, Side.TOP);
-	ROTATION_DATA.put(Side.BOTTOM, bottomMap);
-
-	HashMap<Side, Side> rightMap = new HashMap<>();
-	rightMap.put(Side.TOP, Side.BACK);
-	rightMap.put(Side.BACK, Side.BOTTOM);
-	rightMap.put(Side.BOTTOM, Side.FRONT);
-	rightMap.put(Side.FRONT, Side.TOP);
-	rightMap.put(Side.RIGHT, Side.RIGHT);
-	rightMap.put(Side.LEFT, Side.LEFT);
-	ROTATION_DATA.put(Side.RIGHT, rightMap);
-
-	HashMap<Side, Side> leftMap = new HashMap<>();
-	leftMap.put(Side.TOP, Side.FRONT);
-	leftMap.put(Side.FRONT, Side.BOTTOM);
-	leftMap.put(Side.BOTTOM, Side.BACK);
-	leftMap.put(Side.BACK, Side.TOP);
-	leftMap.put(Side.LEFT, Side.LEFT);
-	leftMap.put(Side.RIGHT, Side.RIGHT);
-	ROTATION_DATA.put(Side.LEFT, leftMap);
-
-	HashMap<Side, Side> frontMap = new HashMap<>();
-	frontMap.put(Side.TOP, Side.RIGHT);
-	frontMap.put(Side.RIGHT, Side.BOTTOM);
-	frontMap.put(Side.BOTTOM, Side.LEFT);
-	frontMap.put(Side.LEFT, Side.TOP);
-	frontMap.put(Side.FRONT, Side.FRONT);
-	frontMap.put(Side.BACK, Side.BACK);
-	ROTATION_DATA.put(Side.FRONT, frontMap);
-
-	HashMap<Side, Side> backMap = new HashMap<>();
-	backMap.put(Side.TOP, Side.LEFT);
-	backMap.put(Side.LEFT, Side.BOTTOM);
-	backMap.put(Side.BOTTOM, Side.RIGHT);
-	backMap.put(Side.RIGHT, Side.TOP);
-	backMap.put(Side.BACK, Side.BACK);
-	backMap.put(Side.FRONT, Side.FRONT);
-	ROTATION_DATA.put(Side.BACK, backMap); 
+		EnumMap<Side, Map<Side, Side>> rotations = new EnumMap<>(Side.class);
+		for (Side turned : Side.values())
+		{
+			EnumMap<Side, Side> map = new EnumMap<>(Side.class);
+			for (Side side : Side.values())
+			{
+				map.put(side, CubeState.QUARTER_TURNS[turned.ordinal()][side.ordinal()]);
+			}
+			rotations.put(turned, Collections.unmodifiableMap(map));
+		}
+		ROTATION_DATA = Collections.unmodifiableMap(rotations);
+		
+		// face n of a cubie with orientation o is at slot n + o of its
+		// position, so the face at slot s is face s - o
+		for (int i=0; i<EDGE_ORDER.length; i++)
+		{
+			Side[] sides = EDGE_POSITIONS[EDGE_ORDER[i]];
+			int position = CubeState.findEdge(sides);
+			EDGE_STATE_POSITIONS[i] = position;
+			int slot = CubeState.indexOf(CubeState.EDGE_SIDES[position], sides[0]);
+			for (int orientation=0; orientation<2; orientation++)
+			{
+				EDGE_FIRST_FACE[i][orientation] = (slot + orientation) & 1;
+			}
+		}
+		for (int i=0; i<CORNER_ORDER.length; i++)
+		{
+			Side[] sides = CORNER_POSITIONS[CORNER_ORDER[i]];
+			int position = CubeState.findCorner(sides);
+			CORNER_STATE_POSITIONS[i] = position;
+			int first = CubeState.indexOf(CubeState.CORNER_SIDES[position], sides[0]);
+			int second = CubeState.indexOf(CubeState.CORNER_SIDES[position], sides[1]);
+			for (int orientation=0; orientation<3; orientation++)
+			{
+				CORNER_FACE_ORDER[i][orientation] = (first + 3 - orientation) % 3 * 3
+						+ (second + 3 - orientation) % 3;
+			}
+		}
 	}
 	
 	/**
@@ -107,81 +132,258 @@ public class RubiksCube
 	 */
 	public RubiksCube()
 	{
+		this.state = new CubeState();
 		this.edges = new Edge[12];
 		this.corners = new Corner[8];
 		for (int i=0; i<EDGE_POSITIONS.length; i++)
 		{
-			this.edges[i] = new Edge(EDGE_POSITIONS[i]);
+			this.edges[i] = new Edge(EDGE_POSITIONS[i], this.state,
+					CubeState.findEdge(EDGE_POSITIONS[i]));
 		}
 		for (int i=0; i<CORNER_POSITIONS.length; i++)
 		{
-			this.corners[i] = new Corner(CORNER_POSITIONS[i]);
+			this.corners[i] = new Corner(CORNER_POSITIONS[i], this.state,
+					CubeState.findCorner(CORNER_POSITIONS[i]));
 		}
+		this.indexPieces();
 	}
 	
 	/**
-	 * Create a rubiks cube by giving it a file of the positions of faces.
-	 * Not yet implemented properly!!!
+	 * Create a rubiks cube in a given state. The pieces are listed by the
+	 * positions they are at, in the order the solver model lists them
+	 * (EDGE_ORDER and CORNER_ORDER), with their destination sides in the
+	 * order of the sides of those positions. The Manipulator goes through the
+	 * pieces in this order, so it solves a state the same way however it is
+	 * given.
+	 * @param state the state of the cube, which is copied
+	 */
+	public RubiksCube(CubeState state)
+	{
+		this.state = new CubeState();
+		this.edges = new Edge[12];
+		this.corners = new Corner[8];
+		this.setState(state);
+	}
+	
+	/**
+	 * Change the cube to a given state, with its pieces in the order
+	 * RubiksCube(CubeState) puts them in. A piece is made the first time its
+	 * cubie needs its faces in a given order and kept, so once the cube has
+	 * seen a few states setting it to another makes no garbage. Pieces got
+	 * from the cube before may no longer be its pieces.
+	 * @param state the state of the cube, which is copied
+	 */
+	public void setState(CubeState state)
+	{
+		this.state.copyFrom(state);
+		for (int i=0; i<EDGE_ORDER.length; i++)
+		{
+			int cubie = this.state.getEdgeAt(EDGE_STATE_POSITIONS[i]);
+			int first = EDGE_FIRST_FACE[i][this.state.getEdgeOrientation(cubie)];
+			if (this.edgeViews[cubie][first] == null)
+			{
+				this.edgeViews[cubie][first] = new Edge(this.getDestinationSides(
+						EDGE_POSITIONS[EDGE_ORDER[i]], cubie, CubeState.EDGE_SIDES),
+						this.state, cubie);
+			}
+			this.edges[i] = this.edgeViews[cubie][first];
+		}
+		for (int i=0; i<CORNER_ORDER.length; i++)
+		{
+			int cubie = this.state.getCornerAt(CORNER_STATE_POSITIONS[i]);
+			int order = CORNER_FACE_ORDER[i][this.state.getCornerOrientation(cubie)];
+			if (this.cornerViews[cubie][order] == null)
+			{
+				this.cornerViews[cubie][order] = new Corner(this.getDestinationSides(
+						CORNER_POSITIONS[CORNER_ORDER[i]], cubie, CubeState.CORNER_SIDES),
+						this.state, cubie);
+			}
+			this.corners[i] = this.cornerViews[cubie][order];
+		}
+		this.indexPieces();
+	}
+	
+	/**
+	 * Get the destination sides of the faces of a cubie, in the order of the
+	 * current sides they are on.
+	 */
+	private Side[] getDestinationSides(Side[] currentSides, int cubie, Side[][] cubieSides)
+	{
+		Side[] destination = new Side[currentSides.length];
+		for (int i=0; i<currentSides.length; i++)
+		{
+			for (int face=0; face<currentSides.length; face++)
+			{
+				Side current = currentSides.length == 3 ?
+						this.state.getCornerFaceSide(cubie, face) :
+						this.state.getEdgeFaceSide(cubie, face);
+				if (current == currentSides[i])
+				{
+					destination[i] = cubieSides[cubie][face];
+				}
+			}
+		}
+		return destination;
+	}
+	
+	/**
+	 * Create a rubiks cube by giving it a file of the positions of faces: a
+	 * facelet string (see Facelets) on its first line.
 	 * @param positionFile the file with positions in it
 	 * @throws FileNotFoundException
+	 * @throws IllegalArgumentException if the file doesn't start with the
+	 * facelets of a rubiks cube
 	 */
 	public RubiksCube(File positionFile) throws FileNotFoundException
+	{
+		this(readFacelets(positionFile));
+	}
+	
+	private static CubeState readFacelets(File positionFile) throws FileNotFoundException
 	{
 		Scanner in = new Scanner(positionFile);
-		this.edges = new Edge[12];
-		this.corners = new Corner[8];
-		in.close();
-		
+		try
+		{
+			if (!in.hasNext())
+			{
+				throw new IllegalArgumentException("No facelets in " + positionFile);
+			}
+			CubeState state = new CubeState();
+			Facelets.decode(in.next(), state);
+			return state;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Get the facelet string of the cube (see Facelets).
+	 * @return the 54 facelets in the letters URFDLB
+	 */
+	public String getFacelets()
+	{
+		return Facelets.encode(this.state);
 	}
 	
 	/**
 	 * Create a rubiks cube by giving it a hash map of the positions.
 	 * @param positions the hash map of positions
 	 * (Precondition: edges has 12 items and corners has 8 items)
+	 * @throws IllegalArgumentException if a piece is not a piece of a rubiks
+	 * cube, or two pieces are the same or at the same position
 	 */
 	public RubiksCube(HashMap<Integer, HashMap<String, Side[]>> edges,
 			HashMap<Integer, HashMap<String, Side[]>> corners)
 	{
+		this.state = new CubeState();
 		this.edges = new Edge[12];
 		this.corners = new Corner[8];
+		boolean[] edgeUsed = new boolean[12];
+		boolean[] cornerUsed = new boolean[8];
+		// placing a piece at a used position would leave another one empty
+		boolean[] edgePositionUsed = new boolean[12];
+		boolean[] cornerPositionUsed = new boolean[8];
 		
 		for (int keyInt : edges.keySet())
 		{
 			HashMap<String, Side[]> edgeRepr = edges.get(keyInt);
-			this.edges[keyInt] = new Edge(edgeRepr.get("destination"),
-					edgeRepr.get("current"));
+			Side[] destination = edgeRepr.get("destination");
+			int cubie = this.state.place(destination, edgeRepr.get("current"));
+			if (edgeUsed[cubie])
+			{
+				throw new IllegalArgumentException("Edge is used twice: " + cubie);
+			}
+			edgeUsed[cubie] = true;
+			int position = this.state.getEdgePosition(cubie);
+			if (edgePositionUsed[position])
+			{
+				throw new IllegalArgumentException("Two edges are at the same position: "
+						+ position);
+			}
+			edgePositionUsed[position] = true;
+			this.edges[keyInt] = new Edge(destination, this.state, cubie);
 		}
 		
 		for (int keyInt : corners.keySet())
 		{
 			HashMap<String, Side[]> cornerRepr = corners.get(keyInt);
-			this.corners[keyInt] = new Corner(cornerRepr.get("destination"),
-					cornerRepr.get("current"));
+			Side[] destination = cornerRepr.get("destination");
+			int cubie = this.state.place(destination, cornerRepr.get("current"));
+			if (cornerUsed[cubie])
+			{
+				throw new IllegalArgumentException("Corner is used twice: " + cubie);
+			}
+			cornerUsed[cubie] = true;
+			int position = this.state.getCornerPosition(cubie);
+			if (cornerPositionUsed[position])
+			{
+				throw new IllegalArgumentException("Two corners are at the same position: "
+						+ position);
+			}
+			cornerPositionUsed[position] = true;
+			this.corners[keyInt] = new Corner(destination, this.state, cubie);
 		}
+		this.indexPieces();
 	}
 	
 	/**
-	 * Rotate a side of the rubiks cube through 90 degrees clockwise.
-	 * @param side the side of the cube to rotate
+	 * Sort the pieces by their destination sides, once for each state set,
+	 * so that getting the pieces with or without a side makes no garbage.
 	 */
-	public void rotate(Side side)
+	private void indexPieces()
 	{
-		for (Edge edge : this.edges)
+		for (Side side : SIDES)
 		{
-			if (edge.hasFaceWithCurrentSide(side))
+			int with = 0;
+			int without = 0;
+			for (Edge edge : this.edges)
 			{
-				edge.rotate(ROTATION_DATA.get(side));
+				if (edge.hasFaceWithDestinationSide(side))
+				{
+					this.edgesWithSide[side.ordinal()][with++] = edge;
+				}
+				else
+				{
+					this.edgesWithoutSide[side.ordinal()][without++] = edge;
+				}
 			}
-		}
-		for (Corner corner : this.corners)
-		{
-			if (corner.hasFaceWithCurrentSide(side))
+			with = 0;
+			without = 0;
+			for (Corner corner : this.corners)
 			{
-				corner.rotate(ROTATION_DATA.get(side));
+				if (corner.hasFaceWithDestinationSide(side))
+				{
+					this.cornersWithSide[side.ordinal()][with++] = corner;
+				}
+				else
+				{
+					this.cornersWithoutSide[side.ordinal()][without++] = corner;
+				}
 			}
 		}
 	}
 	
+	/**
+	 * Get the packed state that the pieces of this cube are views over.
+	 * Moves applied to the state are seen by the pieces.
+	 * @return the state of the cube
+	 */
+	public CubeState getState()
+	{
+		return this.state;
+	}
+	
+	/**
+	 * Rotate a side of the rubiks cube through 90 degrees clockwise.
+	 * @param side the side of the cube to rotate
+	 */
+	public void rotate(Side side)
+	{
+		this.state.move(CubeState.moveIndex(side, 1));
+	}
+	
 	/**
 	 * Rotate a side of the rubiks cube through 90 degrees clockwise a given 
 	 * amount of times.
@@ -190,81 +392,49 @@ public class RubiksCube
 	 */
 	public void rotate(Side side, int amount)
 	{
-		for (int i=0; i<amount; i++)
-		{
-			this.rotate(side);
-		}
+		this.state.move(side, amount);
+	}
+	
+	/**
+	 * Rotate the sides of the cube by a list of moves compiled into a state
+	 * (see Notation.compile), all in one go.
+	 * @param moves the state the moves take the solved state to
+	 */
+	public void apply(CubeState moves)
+	{
+		this.state.apply(moves);
 	}
 	
 	/**
 	 * Get an array of all the edges in the cube with a given destination side.
 	 * @param side the side the edges must have to be included in the array
-	 * @return an array of edges
+	 * @return an array of edges, which is shared and must not be changed
 	 */
 	public Edge[] getEdgesWithDestinationSide(Side side)
 	{
-		ArrayList<Edge> withSide = new ArrayList<>();
-		for (Edge edge : this.edges)
-		{
-			if (edge.hasFaceWithDestinationSide(side))
-			{
-				withSide.add(edge);
-			}
-		}
-		Edge[] toReturn = new Edge[withSide.size()];
-		for (int i=0; i<withSide.size(); i++)
-		{
-			toReturn[i] = withSide.get(i);
-		}
-		return toReturn;
+		return this.edgesWithSide[side.ordinal()];
 	}
 	
 	/**
 	 * Get an array of all the corners in the cube with a 
 	 * given destination side.
 	 * @param side the side the corners must have to be included in the array
-	 * @return an array of corners
+	 * @return an array of corners, which is shared and must not be changed
 	 */
 	public Corner[] getCornersWithDestinationSide(Side side)
 	{
-		ArrayList<Corner> withSide = new ArrayList<>();
-		for (Corner corner : this.corners)
-		{
-			if (corner.hasFaceWithDestinationSide(side))
-			{
-				withSide.add(corner);
-			}
-		}
-		Corner[] toReturn = new Corner[withSide.size()];
-		for (int i=0; i<withSide.size(); i++)
-		{
-			toReturn[i] = withSide.get(i);
-		}
-		return toReturn;
+		return this.cornersWithSide[side.ordinal()];
 	}
 	
 	/**
 	 * Get an array of all the edges in the cube without a given 
 	 * destination side.
 	 * @param side the side the edges must not have to be included in the array
-	 * @return an array of edges
+	 * @return an array of edges, which is shared and must not be changed
 	 */
 	public Edge[] getEdgesWithoutDestinationSide(Side side)
 	{
-		ArrayList<Edge> withoutSide = new ArrayList<>();
-		for (Edge edge : this.edges)
-		{
-			if (!edge.hasFaceWithDestinationSide(side))
-			{
-				withoutSide.add(edge);
-			}
-		}
-		Edge[] toReturn = new Edge[withoutSide.size()];
-		for (int i=0; i<withoutSide.size(); i++)
-		{
-			toReturn[i] = withoutSide.get(i);
-		}
-		return toReturn;
+		return this.edgesWithoutSide[side.ordinal()];
 	}
 	
 	/**
@@ -272,48 +442,59 @@ public class RubiksCube
 	 * given destination side.
 	 * @param side the side the corners must not have to be included
 	 * in the array
-	 * @return an array of corners
+	 * @return an array of corners, which is shared and must not be changed
 	 */
 	public Corner[] getCornersWithoutDestinationSide(Side side)
 	{
-		ArrayList<Corner> withoutSide = new ArrayList<>();
-		for (Corner corner : this.corners)
-		{
-			if (!corner.hasFaceWithDestinationSide(side))
-			{
-				withoutSide.add(corner);
-			}
-		}
-		Corner[] toReturn = new Corner[withoutSide.size()];
-		for (int i=0; i<withoutSide.size(); i++)
-		{
-			toReturn[i] = withoutSide.get(i);
-		}
-		return toReturn;
+		return this.cornersWithoutSide[side.ordinal()];
 	}
 		
 	/**
 	 * Rotate random sides, with a given amount of rotations.
+	 * For states that are all equally likely, see RandomStates.
 	 * @param amount the amount of rotations
 	 */
 	public void randomize(int amount)
 	{
-		Random generator = new Random();
-		Side[] sides = new Side[6];
-		sides[0] = Side.TOP;
-		sides[1] = Side.BOTTOM;
-		sides[2] = Side.RIGHT;
-		sides[3] = Side.LEFT;
-		sides[4] = Side.FRONT;
-		sides[5] = Side.BACK;
+		this.randomize(amount, new Random());
+	}
+	
+	/**
+	 * Rotate random sides, with a given amount of rotations, chosen by a
+	 * given generator so that they can be made again from its seed.
+	 * @param amount the amount of rotations
+	 * @param generator chooses the sides
+	 */
+	public void randomize(int amount, Random generator)
+	{
+		Side[] sides = Side.values();
 		for (int i=0; i<amount; i++)
 		{
-			Side side = sides[generator.nextInt(5)];
-			rotate(side);
-			System.out.println(side);
+			rotate(sides[generator.nextInt(sides.length)]);
 		}
 	}
 	
+	/**
+	 * Is another object a rubiks cube with every piece at the same position
+	 * the same way round?
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof RubiksCube)) return false;
+		return this.state.equals(((RubiksCube) other).state);
+	}
+	
+	/**
+	 * Get a hash of the positions of the pieces, which rotate keeps up to
+	 * date (see CubeState.getHash).
+	 */
+	@Override
+	public int hashCode()
+	{
+		return this.state.hashCode();
+	}
+	
 	public String toString()
 	{
 		String state = "{\n";
@@ -0,0 +1,200 @@
+package rubikscube;
+
+/**
+ * Whether a cube can be solved, and if not, why. Only a third of the ways
+ * of putting the pieces of a cube on it can be reached by turning it, so a
+ * state should be checked before it is given to a solver, which may never
+ * finish with one that can't be.
+ *
+ * A cube that has every piece on it once, with none mirrored, can be solved
+ * if the twists of its corners add up to a multiple of 3, the flips of its
+ * edges add up to a multiple of 2, and its corners and edges have both been
+ * swapped an even number of times or both an odd number of times.
+ * @author Cathal
+ *
+ */
+public final class Solvability
+{
+	/**
+	 * The reasons a cube can't be solved.
+	 */
+	public enum Problem
+	{
+		NONE("The cube can be solved."),
+		WRONG_PIECE_COUNT("A rubiks cube has 20 pieces."),
+		NOT_COLOURS("The colours of a piece are wrong."),
+		NOT_A_PIECE("No piece has the colours of a piece."),
+		MIRRORED_PIECE("The colours of a piece are the wrong way round."),
+		PIECE_TWICE("A piece is on the cube twice."),
+		TWISTED_CORNER("A corner is twisted."),
+		FLIPPED_EDGE("An edge is flipped."),
+		SWAPPED_PIECES("Two pieces are swapped.");
+
+		private final String message;
+
+		private Problem(String message)
+		{
+			this.message = message;
+		}
+
+		public String getMessage()
+		{
+			return this.message;
+		}
+	}
+
+	/**
+	 * A cube that can be solved.
+	 */
+	public static final Solvability SOLVABLE = new Solvability(Problem.NONE, -1);
+
+	private static final String COLOURS = "wyrobg";
+
+	private final Problem problem;
+	private final int position;
+
+	private Solvability(Problem problem, int position)
+	{
+		this.problem = problem;
+		this.position = position;
+	}
+
+	public boolean isSolvable()
+	{
+		return this.problem == Problem.NONE;
+	}
+
+	public Problem getProblem()
+	{
+		return this.problem;
+	}
+
+	/**
+	 * Get the position of the piece that is wrong.
+	 * @return the index in PieceColours.POSITIONS, or -1 if the problem isn't
+	 * with one piece
+	 */
+	public int getPosition()
+	{
+		return this.position;
+	}
+
+	/**
+	 * Get why the cube can't be solved, for showing to a user.
+	 * @return the message, with the position of the piece if the problem is
+	 * with one piece
+	 */
+	public String getMessage()
+	{
+		if (this.position < 0) return this.problem.getMessage();
+		return this.problem.getMessage() + " (" + PieceColours.POSITIONS[this.position]
+				+ ")";
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.getMessage();
+	}
+
+	/**
+	 * Check a cube given as the colours of its pieces (see PieceColours).
+	 * @param pieces the colours of the piece at each of PieceColours.POSITIONS
+	 * @return whether the cube can be solved
+	 */
+	public static Solvability check(String[] pieces)
+	{
+		String[] positions = PieceColours.POSITIONS;
+		if (pieces.length != positions.length)
+		{
+			return new Solvability(Problem.WRONG_PIECE_COUNT, -1);
+		}
+		CubeState state = new CubeState();
+		Side[][] destination = {new Side[2], new Side[3]};
+		Side[][] current = {new Side[2], new Side[3]};
+		int used = 0;
+		for (int i = 0; i < positions.length; i++)
+		{
+			int length = positions[i].length();
+			if (pieces[i] == null || pieces[i].length() != length)
+			{
+				return new Solvability(Problem.NOT_COLOURS, i);
+			}
+			Side[] destinationSides = destination[length - 2];
+			Side[] currentSides = current[length - 2];
+			for (int j = 0; j < length; j++)
+			{
+				if (COLOURS.indexOf(Character.toLowerCase(pieces[i].charAt(j))) < 0)
+				{
+					return new Solvability(Problem.NOT_COLOURS, i);
+				}
+				destinationSides[j] = PieceColours.getSide(pieces[i].charAt(j));
+				currentSides[j] = PieceColours.getSide(positions[i].charAt(j));
+			}
+			int piece = length == 3 ? CubeState.findCorner(destinationSides) :
+				CubeState.findEdge(destinationSides);
+			for (int j = 1; j < length; j++)
+			{
+				// a colour twice, which find doesn't notice
+				if (destinationSides[j] == destinationSides[j - 1] ||
+						destinationSides[j] == destinationSides[0]) piece = -1;
+			}
+			if (piece < 0)
+			{
+				return new Solvability(Problem.NOT_A_PIECE, i);
+			}
+			int bit = 1 << (length == 3 ? piece + CubeState.EDGE_COUNT : piece);
+			if ((used & bit) != 0)
+			{
+				return new Solvability(Problem.PIECE_TWICE, i);
+			}
+			used |= bit;
+			try
+			{
+				state.place(destinationSides, currentSides);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// the piece and position are real, so it can only be mirrored
+				return new Solvability(Problem.MIRRORED_PIECE, i);
+			}
+		}
+		return check(state);
+	}
+
+	/**
+	 * Check a state, which has every cubie at a different position, by the
+	 * twist, flip and swaps of its cubies.
+	 * @param state the state to check
+	 * @return whether the state can be solved
+	 */
+	public static Solvability check(CubeState state)
+	{
+		int twist = 0;
+		int cornerParity = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int cubie = state.getCornerAt(position);
+			twist += state.getCornerOrientation(cubie);
+			for (int later = position + 1; later < CubeState.CORNER_COUNT; later++)
+			{
+				if (state.getCornerAt(later) < cubie) cornerParity ^= 1;
+			}
+		}
+		int flip = 0;
+		int edgeParity = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			flip += state.getEdgeOrientation(cubie);
+			for (int later = position + 1; later < CubeState.EDGE_COUNT; later++)
+			{
+				if (state.getEdgeAt(later) < cubie) edgeParity ^= 1;
+			}
+		}
+		if (twist % 3 != 0) return new Solvability(Problem.TWISTED_CORNER, -1);
+		if ((flip & 1) != 0) return new Solvability(Problem.FLIPPED_EDGE, -1);
+		if (cornerParity != edgeParity) return new Solvability(Problem.SWAPPED_PIECES, -1);
+		return SOLVABLE;
+	}
+}
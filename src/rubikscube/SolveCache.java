@@ -0,0 +1,156 @@
+package rubikscube;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the solutions of the states most recently solved by another solver,
+ * so a state seen again is not solved again. States that are the same but
+ * for a symmetry of the cube (see Symmetry) share one solution, kept for the
+ * state with the least key of them all and seen through the symmetry that
+ * takes it back to each.
+ *
+ * At most a given number of solutions are kept, the least recently used
+ * going first. The cache can be used by any number of threads at once if
+ * the solver can; a SolverPool can.
+ * @author Cathal
+ *
+ */
+public class SolveCache implements CubeSolver
+{
+	private final CubeSolver solver;
+	private final LinkedHashMap<Key, byte[]> solutions;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create an empty cache.
+	 * @param solver solves the states that aren't in the cache
+	 * @param capacity the most solutions to keep
+	 * @throws IllegalArgumentException if the capacity isn't positive
+	 */
+	public SolveCache(CubeSolver solver, final int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Not a capacity: " + capacity);
+		}
+		this.solver = solver;
+		this.solutions = new LinkedHashMap<Key, byte[]>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest)
+			{
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Solve a cube state from the cache, or with the solver if no state the
+	 * same but for a symmetry is in it.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex), or null if the solver found no solution
+	 */
+	@Override
+	public byte[] solve(CubeState state)
+	{
+		long[] canonical = new long[2];
+		int symmetry = Symmetry.canonicalize(state, canonical);
+		Key key = new Key(canonical[0], canonical[1]);
+		byte[] solution;
+		synchronized (this.solutions)
+		{
+			solution = this.solutions.get(key);
+		}
+		if (solution != null)
+		{
+			this.hits.incrementAndGet();
+			return Symmetry.transform(solution, Symmetry.inverse(symmetry));
+		}
+
+		this.misses.incrementAndGet();
+		solution = this.solver.solve(state);
+		if (solution != null)
+		{
+			byte[] canonicalSolution = Symmetry.transform(solution, symmetry);
+			synchronized (this.solutions)
+			{
+				this.solutions.put(key, canonicalSolution);
+			}
+		}
+		return solution;
+	}
+
+	/**
+	 * Get how many solves were answered from the cache.
+	 * @return the number of hits
+	 */
+	public long getHits()
+	{
+		return this.hits.get();
+	}
+
+	/**
+	 * Get how many solves were handed to the solver.
+	 * @return the number of misses
+	 */
+	public long getMisses()
+	{
+		return this.misses.get();
+	}
+
+	/**
+	 * Get the number of solutions kept.
+	 * @return the size of the cache
+	 */
+	public int size()
+	{
+		synchronized (this.solutions)
+		{
+			return this.solutions.size();
+		}
+	}
+
+	/**
+	 * Forget every solution, but not the hits and misses.
+	 */
+	public void clear()
+	{
+		synchronized (this.solutions)
+		{
+			this.solutions.clear();
+		}
+	}
+
+	/**
+	 * The corner key and edge key of a state (see Symmetry.canonicalize).
+	 */
+	private static final class Key
+	{
+		private final long corners;
+		private final long edges;
+
+		private Key(long corners, long edges)
+		{
+			this.corners = corners;
+			this.edges = edges;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return this.corners == key.corners && this.edges == key.edges;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode(this.corners * 31 + this.edges);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package rubikscube;
+
+/**
+ * The cases and sequences of the stages of the Manipulator's solve, one for
+ * each method that handles a case, so that how often each is used can be
+ * counted (see SolveMetrics).
+ * @author Cathal
+ *
+ */
+public enum SolveCase
+{
+	STAGE_ONE_CASE_ONE(1),
+	STAGE_ONE_CASE_TWO(1),
+	STAGE_ONE_CASE_THREE(1),
+	STAGE_ONE_CASE_FOUR(1),
+	STAGE_ONE_CASE_FIVE(1),
+	STAGE_ONE_FINAL_CASE(1),
+	STAGE_TWO_CASE_ONE(2),
+	STAGE_TWO_CASE_TWO(2),
+	STAGE_TWO_CASE_THREE(2),
+	STAGE_TWO_FINAL_CASE_RIGHT(2),
+	STAGE_TWO_FINAL_CASE_LEFT(2),
+	STAGE_THREE_CASE_ONE(3),
+	STAGE_THREE_FINAL_CASE(3),
+	STAGE_THREE_FINAL_CASE_RIGHT(3),
+	STAGE_THREE_FINAL_CASE_LEFT(3),
+	STAGE_FOUR_SEQUENCE_ONE(4),
+	STAGE_FOUR_SEQUENCE_TWO(4),
+	STAGE_FIVE_SEQUENCE_ONE(5),
+	STAGE_FIVE_SEQUENCE_TWO(5),
+	STAGE_FIVE_SEQUENCE_THREE(5),
+	STAGE_SIX_SEQUENCE_ONE(6),
+	STAGE_SIX_SEQUENCE_TWO(6),
+	STAGE_SEVEN_SEQUENCE_ONE(7),
+	STAGE_SEVEN_SEQUENCE_TWO(7),
+	STAGE_SEVEN_LEFT_SEQUENCE(7),
+	STAGE_SEVEN_RIGHT_SEQUENCE(7);
+
+	private final int stage;
+
+	private SolveCase(int stage)
+	{
+		this.stage = stage;
+	}
+
+	/**
+	 * Get the stage the case is in.
+	 * @return the stage, from 1 to SolveMetrics.STAGE_COUNT
+	 */
+	public int getStage()
+	{
+		return this.stage;
+	}
+}
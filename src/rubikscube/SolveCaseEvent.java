@@ -0,0 +1,33 @@
+package rubikscube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for a case of a stage of a Manipulator's solve
+ * being used. There are dozens in a solve, so it is off unless a recording
+ * turns it on.
+ * @author Cathal
+ *
+ */
+@Name("rubikscube.SolveCase")
+@Label("Solve Case")
+@Category("Rubiks Cube")
+@Description("A case of a stage of solving a rubiks cube layer by layer")
+@Enabled(false)
+@StackTrace(false)
+final class SolveCaseEvent extends jdk.jfr.Event
+{
+	static final EventType TYPE = EventType.getEventType(SolveCaseEvent.class);
+
+	@Label("Stage")
+	int stage;
+
+	@Label("Case")
+	String solveCase;
+}
@@ -0,0 +1,27 @@
+package rubikscube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for a whole solve by a Manipulator.
+ * @author Cathal
+ *
+ */
+@Name("rubikscube.Solve")
+@Label("Solve")
+@Category("Rubiks Cube")
+@Description("Solving a rubiks cube layer by layer")
+final class SolveEvent extends jdk.jfr.Event
+{
+	static final EventType TYPE = EventType.getEventType(SolveEvent.class);
+
+	@Label("Moves")
+	int moves;
+
+	@Label("Rotate Calls")
+	int rotateCalls;
+}
@@ -0,0 +1,173 @@
+package rubikscube;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up, over many solves by Manipulators, how long each stage took, how
+ * many moves it added to the solution and how many times it rotated the
+ * cube, and how many times each case (see SolveCase) was used. It can be
+ * added to by any number of threads at once, and read as a Snapshot.
+ * @author Cathal
+ *
+ */
+public class SolveMetrics
+{
+	public static final int STAGE_COUNT = 7;
+
+	private static final SolveCase[] CASES = SolveCase.values();
+
+	private final LongAdder solves = new LongAdder();
+	private final LongAdder[] stageNanos = adders(STAGE_COUNT);
+	private final LongAdder[] stageMoves = adders(STAGE_COUNT);
+	private final LongAdder[] stageRotateCalls = adders(STAGE_COUNT);
+	private final LongAdder[] caseCounts = adders(CASES.length);
+
+	private static LongAdder[] adders(int count)
+	{
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++)
+		{
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/**
+	 * Add a solve.
+	 * @param nanos the time each stage took
+	 * @param moves the moves each stage added
+	 * @param rotateCalls the rotations each stage made
+	 * @param caseCounts how many times each case was used, by ordinal
+	 */
+	void add(long[] nanos, int[] moves, int[] rotateCalls, int[] caseCounts)
+	{
+		this.solves.increment();
+		for (int stage = 0; stage < STAGE_COUNT; stage++)
+		{
+			this.stageNanos[stage].add(nanos[stage]);
+			this.stageMoves[stage].add(moves[stage]);
+			this.stageRotateCalls[stage].add(rotateCalls[stage]);
+		}
+		for (int i = 0; i < CASES.length; i++)
+		{
+			if (caseCounts[i] != 0) this.caseCounts[i].add(caseCounts[i]);
+		}
+	}
+
+	/**
+	 * Read what has been added up so far. Solves added while it is read may
+	 * be partly in it.
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot()
+	{
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Start adding up again from nothing.
+	 */
+	public void reset()
+	{
+		this.solves.reset();
+		for (int stage = 0; stage < STAGE_COUNT; stage++)
+		{
+			this.stageNanos[stage].reset();
+			this.stageMoves[stage].reset();
+			this.stageRotateCalls[stage].reset();
+		}
+		for (LongAdder count : this.caseCounts)
+		{
+			count.reset();
+		}
+	}
+
+	/**
+	 * The metrics of the solves up to a point in time. Stages are numbered
+	 * from 1 to STAGE_COUNT.
+	 */
+	public static final class Snapshot
+	{
+		private final long solves;
+		private final long[] stageNanos = new long[STAGE_COUNT];
+		private final long[] stageMoves = new long[STAGE_COUNT];
+		private final long[] stageRotateCalls = new long[STAGE_COUNT];
+		private final long[] caseCounts = new long[CASES.length];
+
+		private Snapshot(SolveMetrics metrics)
+		{
+			this.solves = metrics.solves.sum();
+			for (int stage = 0; stage < STAGE_COUNT; stage++)
+			{
+				this.stageNanos[stage] = metrics.stageNanos[stage].sum();
+				this.stageMoves[stage] = metrics.stageMoves[stage].sum();
+				this.stageRotateCalls[stage] = metrics.stageRotateCalls[stage].sum();
+			}
+			for (int i = 0; i < CASES.length; i++)
+			{
+				this.caseCounts[i] = metrics.caseCounts[i].sum();
+			}
+		}
+
+		public long getSolveCount()
+		{
+			return this.solves;
+		}
+
+		public long getStageNanos(int stage)
+		{
+			return this.stageNanos[stage - 1];
+		}
+
+		/**
+		 * Get how much longer a stage made the solutions. A move that undoes
+		 * the last move of the stage before takes it away.
+		 */
+		public long getStageMoves(int stage)
+		{
+			return this.stageMoves[stage - 1];
+		}
+
+		public long getStageRotateCalls(int stage)
+		{
+			return this.stageRotateCalls[stage - 1];
+		}
+
+		public long getCaseCount(SolveCase solveCase)
+		{
+			return this.caseCounts[solveCase.ordinal()];
+		}
+
+		/**
+		 * Write the metrics as a table: a line for each stage with its time,
+		 * moves and rotations, and the share of the time, then a line for
+		 * each case with how many times it was used.
+		 */
+		@Override
+		public String toString()
+		{
+			long totalNanos = 0;
+			for (long nanos : this.stageNanos)
+			{
+				totalNanos += nanos;
+			}
+			StringBuilder table = new StringBuilder();
+			table.append(String.format("%d solves%n", this.solves));
+			table.append(String.format("%-6s %12s %7s %12s %12s%n", "stage", "ms", "%",
+					"moves", "rotations"));
+			for (int stage = 1; stage <= STAGE_COUNT; stage++)
+			{
+				table.append(String.format("%-6d %12.3f %7.1f %12d %12d%n", stage,
+						this.getStageNanos(stage) / 1e6,
+						totalNanos == 0 ? 0 : 100.0 * this.getStageNanos(stage) / totalNanos,
+						this.getStageMoves(stage), this.getStageRotateCalls(stage)));
+			}
+			for (SolveCase solveCase : CASES)
+			{
+				table.append(String.format("%-30s %12d%n", solveCase,
+						this.getCaseCount(solveCase)));
+			}
+			return table.toString();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package rubikscube;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Checks solvers by solving random states (see RandomStates) and making the
+ * moves of each solution on a copy of its state, which must then be solved.
+ * A solver that gives no solution, a solution that doesn't solve, or throws
+ * (an assertion failing too, when they are on) fails the case, and the
+ * failure is written to the log with the seed of its state, from which
+ * getState makes the state again.
+ *
+ * Every case has a seed of its own, made from the seed of the run and the
+ * index of the case, so the cases are the same however many threads there
+ * are and in whatever order they are checked. The cases are split between
+ * the threads of a fork/join pool, and each thread makes its own solver of
+ * each kind the first time it needs one.
+ *
+ * getGarbage checks that a solver doesn't make garbage, which would
+ * lead to pauses for collecting it.
+ * @author Cathal
+ *
+ */
+public class SolverFuzzer
+{
+	// the fewest cases a task checks without splitting them in two
+	private static final long LEAF_SIZE = 1024;
+	// the times getGarbage solves its states before measuring
+	private static final int WARM_UP_RUNS = 3;
+
+	private final PrintStream log;
+	private final ArrayList<String> names = new ArrayList<>();
+	private final ArrayList<ThreadLocal<CubeSolver>> solvers = new ArrayList<>();
+	private final ArrayList<LongAdder> moves = new ArrayList<>();
+	private final ArrayList<LongAdder> failures = new ArrayList<>();
+	private final LongAdder cases = new LongAdder();
+
+	/**
+	 * Create a fuzzer with no solvers.
+	 * @param log where to write the failures, which may be written from any
+	 * thread
+	 */
+	public SolverFuzzer(PrintStream log)
+	{
+		this.log = log;
+	}
+
+	/**
+	 * Add a kind of solver to check.
+	 * (Precondition: no run is going on)
+	 * @param name the name the failures of the solver are logged with
+	 * @param solvers makes a solver for each thread
+	 */
+	public void addSolver(String name, Supplier<? extends CubeSolver> solvers)
+	{
+		this.names.add(name);
+		this.solvers.add(ThreadLocal.withInitial(solvers));
+		this.moves.add(new LongAdder());
+		this.failures.add(new LongAdder());
+	}
+
+	/**
+	 * Check every solver on a number of random states.
+	 * @param count the number of states
+	 * @param seed the seed of the run
+	 * @param threads the number of threads to check on
+	 * @return the number of failures in this run
+	 * @throws IllegalArgumentException if the count is negative or there
+	 * are no threads
+	 */
+	public long run(long count, long seed, int threads)
+	{
+		if (count < 0) throw new IllegalArgumentException("Not a count: " + count);
+		if (threads < 1) throw new IllegalArgumentException("No threads");
+		long failed = this.getFailures();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			pool.invoke(new Cases(seed, 0, count));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		return this.getFailures() - failed;
+	}
+
+	/**
+	 * Get the seed of a case, from which RandomStates makes its state.
+	 * @param seed the seed of the run
+	 * @param index the index of the case in the run
+	 * @return the seed of the case
+	 */
+	public static long getCaseSeed(long seed, long index)
+	{
+		// the finalizer of SplittableRandom, so that near seeds give far ones
+		long z = seed + index * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Make the state of a case again, from the seed logged with its failure.
+	 * @param caseSeed the seed of the case
+	 * @param state the state to change to it
+	 */
+	public static void getState(long caseSeed, CubeState state)
+	{
+		new RandomStates(caseSeed).next(state);
+	}
+
+	/**
+	 * Measure the memory a solver allocates on this thread besides the
+	 * solutions it gives back, when solving some states. The states are
+	 * solved a few times first to warm the solver up, then measured several
+	 * times, and the least is taken, so that the odd allocation of the JVM
+	 * itself while a run was measured doesn't count. A solver that makes no
+	 * garbage allocates nothing else. The size of a solution is taken as
+	 * that of a byte array with a 16 byte header, as on a 64 bit JVM with
+	 * compressed class pointers.
+	 * (Precondition: runs is more than 0)
+	 * @param solver the solver
+	 * @param count the number of states to solve in each run
+	 * @param seed the seed of the states
+	 * @param runs the number of runs to measure
+	 * @return the least bytes allocated in a run, or -1 if the JVM can't
+	 * count the memory allocated by a thread
+	 */
+	public static long getGarbage(CubeSolver solver, int count, long seed, int runs)
+	{
+		if (!(ManagementFactory.getThreadMXBean() instanceof
+				com.sun.management.ThreadMXBean))
+		{
+			return -1;
+		}
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) return -1;
+		threads.setThreadAllocatedMemoryEnabled(true);
+		CubeState state = new CubeState();
+		for (int i = 0; i < WARM_UP_RUNS; i++)
+		{
+			RandomStates states = new RandomStates(seed);
+			for (int j = 0; j < count; j++)
+			{
+				states.next(state);
+				solver.solve(state);
+			}
+		}
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++)
+		{
+			RandomStates states = new RandomStates(seed);
+			long solutionBytes = 0;
+			long allocated = threads.getCurrentThreadAllocatedBytes();
+			for (int j = 0; j < count; j++)
+			{
+				states.next(state);
+				byte[] solution = solver.solve(state);
+				if (solution != null) solutionBytes += (16 + solution.length + 7) & ~7;
+			}
+			allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+			least = Math.min(least, allocated - solutionBytes);
+		}
+		return least;
+	}
+
+	/**
+	 * Get the number of cases checked, by every solver, in every run.
+	 * @return the number of cases
+	 */
+	public long getCases()
+	{
+		return this.cases.sum();
+	}
+
+	/**
+	 * Get the number of failures of every solver in every run.
+	 * @return the number of failures
+	 */
+	public long getFailures()
+	{
+		long sum = 0;
+		for (LongAdder failed : this.failures)
+		{
+			sum += failed.sum();
+		}
+		return sum;
+	}
+
+	/**
+	 * Write the number of cases, failures and the average solution length
+	 * of each solver.
+	 * @param out where to write
+	 */
+	public void printSummary(PrintStream out)
+	{
+		long count = this.getCases();
+		out.printf("Checked %d cases%n", count);
+		for (int i = 0; i < this.names.size(); i++)
+		{
+			long failed = this.failures.get(i).sum();
+			long solved = count - failed;
+			out.printf("  %-10s %d failures, %.2f moves on average%n", this.names.get(i),
+					failed, solved == 0 ? 0.0 : (double) this.moves.get(i).sum() / solved);
+		}
+	}
+
+	/**
+	 * Check one case with every solver.
+	 * @param caseSeed the seed of the case
+	 * @param state the state to put the case in
+	 * @param replay the state to make the moves of the solutions on
+	 */
+	private void check(long caseSeed, CubeState state, CubeState replay)
+	{
+		getState(caseSeed, state);
+		for (int i = 0; i < this.solvers.size(); i++)
+		{
+			// the solver may change the state it is given, so it solves a copy
+			replay.copyFrom(state);
+			String failure;
+			try
+			{
+				byte[] solution = this.solvers.get(i).get().solve(replay);
+				if (solution == null)
+				{
+					failure = "no solution";
+				}
+				else
+				{
+					replay.copyFrom(state);
+					replay.move(solution);
+					if (replay.isSolved())
+					{
+						this.moves.get(i).add(solution.length);
+						continue;
+					}
+					failure = "not solved by " + Notation.toString(solution);
+				}
+			}
+			catch (RuntimeException | AssertionError e)
+			{
+				failure = "threw " + e;
+			}
+			this.failures.get(i).increment();
+			this.log.println("FAIL " + this.names.get(i) + " seed " + caseSeed + " "
+					+ Facelets.encode(state) + ": " + failure);
+		}
+	}
+
+	/**
+	 * Checks the cases from one index up to another, splitting them between
+	 * tasks until there are few enough.
+	 */
+	private class Cases extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long seed;
+		private final long from;
+		private final long to;
+
+		private Cases(long seed, long from, long to)
+		{
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.to - this.from > LEAF_SIZE)
+			{
+				long middle = (this.from + this.to) >>> 1;
+				invokeAll(new Cases(this.seed, this.from, middle),
+						new Cases(this.seed, middle, this.to));
+				return;
+			}
+			CubeState state = new CubeState();
+			CubeState replay = new CubeState();
+			for (long index = this.from; index < this.to; index++)
+			{
+				check(getCaseSeed(this.seed, index), state, replay);
+			}
+			cases.add(this.to - this.from);
+		}
+	}
+}
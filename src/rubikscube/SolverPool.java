@@ -0,0 +1,50 @@
+package rubikscube;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * A solver that can be used by any number of threads at once, by lending
+ * each solve a solver from a pool. Solvers are made from a supplier when
+ * none are free and given back after each solve, so there are only ever as
+ * many as there have been solves at the same time. Unlike a ThreadLocal,
+ * this suits threads that only do one solve each, as they can share the
+ * solvers.
+ * @author Cathal
+ *
+ */
+public class SolverPool implements CubeSolver
+{
+	private final Supplier<? extends CubeSolver> solvers;
+	private final ConcurrentLinkedQueue<CubeSolver> free = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Create an empty pool.
+	 * @param solvers makes a solver when none are free
+	 */
+	public SolverPool(Supplier<? extends CubeSolver> solvers)
+	{
+		this.solvers = solvers;
+	}
+
+	/**
+	 * Solve a cube state with a free solver.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex), or null if no solution was found
+	 */
+	@Override
+	public byte[] solve(CubeState state)
+	{
+		CubeSolver solver = this.free.poll();
+		if (solver == null) solver = this.solvers.get();
+		try
+		{
+			return solver.solve(state);
+		}
+		finally
+		{
+			this.free.offer(solver);
+		}
+	}
+}
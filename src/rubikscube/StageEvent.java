@@ -0,0 +1,31 @@
+package rubikscube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for a stage of a Manipulator's solve.
+ * @author Cathal
+ *
+ */
+@Name("rubikscube.Stage")
+@Label("Solve Stage")
+@Category("Rubiks Cube")
+@Description("A stage of solving a rubiks cube layer by layer")
+final class StageEvent extends jdk.jfr.Event
+{
+	static final EventType TYPE = EventType.getEventType(StageEvent.class);
+
+	@Label("Stage")
+	int stage;
+
+	@Label("Moves")
+	@Description("How much longer the solution got")
+	int moves;
+
+	@Label("Rotate Calls")
+	int rotateCalls;
+}
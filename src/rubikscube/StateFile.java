@@ -0,0 +1,79 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary format for files of many cube states, read by StateFileReader
+ * and written by StateFileWriter.
+ *
+ * A state file starts with a header: a magic number and the version of the
+ * format. Then come the states, RECORD_SIZE bytes each: a byte for each
+ * corner position then each edge position, giving the cubie at it and its
+ * orientation as cubie * 3 + orientation for corners and cubie * 2 +
+ * orientation for edges. The number of states is worked out from the size
+ * of the file, so a file can be added to.
+ * @author Cathal
+ *
+ */
+public class StateFile
+{
+	public static final int MAGIC = 0x52435354; // "RCST"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 8;
+	public static final int RECORD_SIZE = CubeState.CORNER_COUNT + CubeState.EDGE_COUNT;
+
+	/**
+	 * Set a state from the record at an index of a buffer.
+	 * @param buffer the buffer to read, which isn't moved
+	 * @param index where the record starts
+	 * @param state the state to set
+	 * @throws IllegalArgumentException if the record isn't a cube state
+	 */
+	public static void read(ByteBuffer buffer, int index, CubeState state)
+	{
+		int used = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int piece = buffer.get(index + position);
+			int cubie = piece / 3;
+			if (piece < 0 || cubie >= CubeState.CORNER_COUNT || (used & (1 << cubie)) != 0)
+			{
+				throw new IllegalArgumentException("Bad corner " + piece + " at " + position);
+			}
+			used |= 1 << cubie;
+			state.setCorner(cubie, position, piece % 3);
+		}
+		used = 0;
+		index += CubeState.CORNER_COUNT;
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int piece = buffer.get(index + position);
+			int cubie = piece >> 1;
+			if (piece < 0 || cubie >= CubeState.EDGE_COUNT || (used & (1 << cubie)) != 0)
+			{
+				throw new IllegalArgumentException("Bad edge " + piece + " at " + position);
+			}
+			used |= 1 << cubie;
+			state.setEdge(cubie, position, piece & 1);
+		}
+	}
+
+	/**
+	 * Put the record of a state at the position of a buffer, moving it on.
+	 * @param buffer the buffer to write, with RECORD_SIZE bytes left
+	 * @param state the state to write
+	 */
+	public static void write(ByteBuffer buffer, CubeState state)
+	{
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int cubie = state.getCornerAt(position);
+			buffer.put((byte) (cubie * 3 + state.getCornerOrientation(cubie)));
+		}
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			buffer.put((byte) (cubie * 2 + state.getEdgeOrientation(cubie)));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the states of a state file (see StateFile). The file is memory
+ * mapped a window of records at a time, and each record is decoded straight
+ * into a CubeState, so reading allocates nothing per state.
+ *
+ * As an iterator it gives the same CubeState every time, set to the next
+ * state, which suits a BatchSolver as it copies each state it reads.
+ * @author Cathal
+ *
+ */
+public class StateFileReader implements Iterator<CubeState>, AutoCloseable
+{
+	// a window holds a whole number of records and fits in a mapped buffer
+	private static final int RECORDS_PER_WINDOW = (1 << 30) / StateFile.RECORD_SIZE;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private final CubeState state = new CubeState();
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long next;
+
+	/**
+	 * Open a state file.
+	 * @param file the file to read
+	 * @throws IOException if the file can't be read or isn't a state file
+	 */
+	public StateFileReader(File file) throws IOException
+	{
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		try
+		{
+			long length = this.channel.size();
+			if (length < StateFile.HEADER_SIZE ||
+					(length - StateFile.HEADER_SIZE) % StateFile.RECORD_SIZE != 0)
+			{
+				throw new IOException("Not a state file: " + file);
+			}
+			MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					StateFile.HEADER_SIZE);
+			if (header.getInt() != StateFile.MAGIC || header.getInt() != StateFile.VERSION)
+			{
+				throw new IOException("Not a state file of version " + StateFile.VERSION
+						+ ": " + file);
+			}
+			this.size = (length - StateFile.HEADER_SIZE) / StateFile.RECORD_SIZE;
+		}
+		catch (IOException e)
+		{
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the number of states in the file.
+	 * @return the number of states
+	 */
+	public long size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Read the state at an index of the file.
+	 * (Precondition: 0 <= index < size())
+	 * @param index the index of the state
+	 * @param state the state to set
+	 * @throws IOException if the file can't be mapped
+	 * @throws IllegalArgumentException if the record isn't a cube state
+	 */
+	public void read(long index, CubeState state) throws IOException
+	{
+		if (this.window == null || index < this.windowStart || index >= this.windowStart + RECORDS_PER_WINDOW)
+		{
+			this.windowStart = index - index % RECORDS_PER_WINDOW;
+			long records = Math.min(RECORDS_PER_WINDOW, this.size - this.windowStart);
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+					StateFile.HEADER_SIZE + this.windowStart * StateFile.RECORD_SIZE,
+					records * StateFile.RECORD_SIZE);
+		}
+		StateFile.read(this.window, (int) (index - this.windowStart) * StateFile.RECORD_SIZE,
+				state);
+	}
+
+	/**
+	 * Read the next state of the file.
+	 * @param state the state to set
+	 * @return true if a state was read, false at the end of the file
+	 * @throws IOException if the file can't be mapped
+	 * @throws IllegalArgumentException if the record isn't a cube state
+	 */
+	public boolean next(CubeState state) throws IOException
+	{
+		if (this.next >= this.size) return false;
+		this.read(this.next++, state);
+		return true;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return this.next < this.size;
+	}
+
+	/**
+	 * Get the next state of the file.
+	 * @return the reader's state, set to the next state
+	 * @throws UncheckedIOException if the file can't be mapped
+	 */
+	@Override
+	public CubeState next()
+	{
+		try
+		{
+			if (!this.next(this.state)) throw new NoSuchElementException();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return this.state;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.window = null;
+		this.file.close();
+	}
+}
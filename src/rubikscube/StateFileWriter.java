@@ -0,0 +1,95 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes states to a state file (see StateFile). Records are packed into a
+ * buffer and written a buffer at a time.
+ * @author Cathal
+ *
+ */
+public class StateFileWriter implements AutoCloseable
+{
+	private static final int RECORDS_PER_BUFFER = 4096;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer =
+			ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * StateFile.RECORD_SIZE);
+	private long count;
+
+	/**
+	 * Create a state file, replacing any file there.
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public StateFileWriter(File file) throws IOException
+	{
+		this.file = new RandomAccessFile(file, "rw");
+		this.channel = this.file.getChannel();
+		this.channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(StateFile.HEADER_SIZE);
+		header.putInt(StateFile.MAGIC).putInt(StateFile.VERSION).flip();
+		this.writeFully(header);
+	}
+
+	/**
+	 * Add a state to the file.
+	 * @param state the state to write
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(CubeState state) throws IOException
+	{
+		if (this.buffer.remaining() < StateFile.RECORD_SIZE)
+		{
+			this.flush();
+		}
+		StateFile.write(this.buffer, state);
+		this.count++;
+	}
+
+	/**
+	 * Get the number of states written.
+	 * @return the number of states
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Write the states added so far to the file.
+	 * @throws IOException if the file can't be written
+	 */
+	public void flush() throws IOException
+	{
+		this.buffer.flip();
+		this.writeFully(this.buffer);
+		this.buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			this.channel.write(buffer);
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			this.flush();
+		}
+		finally
+		{
+			this.file.close();
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package rubikscube;
+
+/**
+ * Numbers every state a real cube can be in, from 0 to COUNT - 1 with none
+ * left out, so a state can be kept as its rank in 66 bits (9 bytes) and got
+ * back from it. The rank is
+ *
+ *   ((corner permutation * TWIST_COUNT + twist) * EDGE_PERMUTATION_COUNT
+ *       + edge permutation) * FLIP_COUNT + flip
+ *
+ * with the twist and flip of Coordinates. The twist of the last corner and
+ * the flip of the last edge are fixed by the others, and so is the order of
+ * the last two edges, as the edges must be swapped an even number of times
+ * if the corners are and an odd number if they are. So the edge permutation
+ * is ranked without its last two edges, from 0 to 12! / 2 - 1.
+ *
+ * A rank doesn't fit in a long, so it is given as its low 64 bits, as an
+ * unsigned long, and the 2 bits above them. The corner rank (the corner
+ * permutation and twist) and edge rank (the edge permutation and flip) that
+ * make it up can be read and set on their own.
+ * @author Cathal
+ *
+ */
+public class StateRank
+{
+	public static final long EDGE_PERMUTATION_COUNT = 239500800L;       // 12! / 2
+	public static final int CORNER_RANK_COUNT =
+			Coordinates.CORNER_PERMUTATION_COUNT * Coordinates.TWIST_COUNT;
+	public static final long EDGE_RANK_COUNT =
+			EDGE_PERMUTATION_COUNT * Coordinates.FLIP_COUNT;
+	/**
+	 * The number of states, 43252003274489856000, as its low 64 bits and the
+	 * bits above them.
+	 */
+	public static final long COUNT = CORNER_RANK_COUNT * EDGE_RANK_COUNT;
+	public static final int COUNT_HIGH =
+			(int) Math.multiplyHigh(CORNER_RANK_COUNT, EDGE_RANK_COUNT);
+
+	// 2^64 = TWO_64_QUOTIENT * EDGE_RANK_COUNT + TWO_64_REMAINDER
+	private static final long TWO_64_QUOTIENT;
+	private static final long TWO_64_REMAINDER;
+
+	static
+	{
+		long quotient = Long.divideUnsigned(-1L, EDGE_RANK_COUNT);
+		long remainder = Long.remainderUnsigned(-1L, EDGE_RANK_COUNT) + 1;
+		if (remainder == EDGE_RANK_COUNT)
+		{
+			quotient++;
+			remainder = 0;
+		}
+		TWO_64_QUOTIENT = quotient;
+		TWO_64_REMAINDER = remainder;
+	}
+
+	/**
+	 * Get the low 64 bits of the rank of a state.
+	 * @param state the state to rank
+	 * @return the low bits of the rank, as an unsigned long
+	 */
+	public static long getRank(CubeState state)
+	{
+		return getRank(getCornerRank(state), getEdgeRank(state));
+	}
+
+	/**
+	 * Get the bits of the rank of a state above the low 64.
+	 * @param state the state to rank
+	 * @return the high bits of the rank, from 0 to COUNT_HIGH
+	 */
+	public static int getRankHigh(CubeState state)
+	{
+		return getRankHigh(getCornerRank(state), getEdgeRank(state));
+	}
+
+	/**
+	 * Get the low 64 bits of the rank of a state from its corner rank and
+	 * edge rank.
+	 * @param cornerRank the corner rank, from 0 to CORNER_RANK_COUNT - 1
+	 * @param edgeRank the edge rank, from 0 to EDGE_RANK_COUNT - 1
+	 * @return the low bits of the rank, as an unsigned long
+	 */
+	public static long getRank(int cornerRank, long edgeRank)
+	{
+		return cornerRank * EDGE_RANK_COUNT + edgeRank;
+	}
+
+	/**
+	 * Get the bits of the rank of a state above the low 64 from its corner
+	 * rank and edge rank.
+	 * @param cornerRank the corner rank, from 0 to CORNER_RANK_COUNT - 1
+	 * @param edgeRank the edge rank, from 0 to EDGE_RANK_COUNT - 1
+	 * @return the high bits of the rank, from 0 to COUNT_HIGH
+	 */
+	public static int getRankHigh(int cornerRank, long edgeRank)
+	{
+		long product = cornerRank * EDGE_RANK_COUNT;
+		long high = Math.multiplyHigh(cornerRank, EDGE_RANK_COUNT);
+		if (Long.compareUnsigned(product + edgeRank, product) < 0) high++;
+		return (int) high;
+	}
+
+	/**
+	 * Change a state to the state with a given rank.
+	 * @param state the state to change
+	 * @param rank the low 64 bits of the rank, as an unsigned long
+	 * @param rankHigh the bits of the rank above the low 64
+	 * @throws IllegalArgumentException if the rank isn't less than COUNT
+	 */
+	public static void setRank(CubeState state, long rank, int rankHigh)
+	{
+		if (rankHigh < 0 || rankHigh > COUNT_HIGH ||
+				(rankHigh == COUNT_HIGH && Long.compareUnsigned(rank, COUNT) >= 0))
+		{
+			throw new IllegalArgumentException("Not a rank: " + rankHigh + ", "
+					+ Long.toUnsignedString(rank));
+		}
+		// (rankHigh * 2^64 + rank) divided by EDGE_RANK_COUNT, in parts that
+		// don't overflow
+		long rest = rankHigh * TWO_64_REMAINDER +
+				Long.remainderUnsigned(rank, EDGE_RANK_COUNT);
+		long cornerRank = rankHigh * TWO_64_QUOTIENT +
+				Long.divideUnsigned(rank, EDGE_RANK_COUNT) + rest / EDGE_RANK_COUNT;
+		setCornerRank(state, (int) cornerRank);
+		setEdgeRank(state, rest % EDGE_RANK_COUNT);
+	}
+
+	/**
+	 * Get the corner permutation and twist of a state.
+	 * @param state the state to read
+	 * @return the corner rank, from 0 to CORNER_RANK_COUNT - 1, 0 when solved
+	 */
+	public static int getCornerRank(CubeState state)
+	{
+		return Coordinates.getCornerPermutation(state) * Coordinates.TWIST_COUNT
+				+ Coordinates.getTwist(state);
+	}
+
+	/**
+	 * Get the edge permutation, without the last two edges, and flip of a
+	 * state.
+	 * @param state the state to read
+	 * @return the edge rank, from 0 to EDGE_RANK_COUNT - 1, 0 when solved
+	 */
+	public static long getEdgeRank(CubeState state)
+	{
+		return getEdgePermutation(state) * Coordinates.FLIP_COUNT
+				+ Coordinates.getFlip(state);
+	}
+
+	/**
+	 * Get the permutation of the edges, leaving out the order of the last
+	 * two, which is fixed by the corners.
+	 * @param state the state to read
+	 * @return the permutation, from 0 to EDGE_PERMUTATION_COUNT - 1, 0 when
+	 * solved
+	 */
+	public static long getEdgePermutation(CubeState state)
+	{
+		long rank = 0;
+		for (int position = 0; position < CubeState.EDGE_COUNT - 2; position++)
+		{
+			int cubie = state.getEdgeAt(position);
+			int smaller = 0;
+			for (int later = position + 1; later < CubeState.EDGE_COUNT; later++)
+			{
+				if (state.getEdgeAt(later) < cubie) smaller++;
+			}
+			rank = rank * (CubeState.EDGE_COUNT - position) + smaller;
+		}
+		return rank;
+	}
+
+	/**
+	 * Change the corners of a state to the corners with a given rank. The
+	 * edges are left as they are, so they may need setting again with
+	 * setEdgeRank for the state to be one a real cube can be in.
+	 * @param state the state to change
+	 * @param rank the corner rank, from 0 to CORNER_RANK_COUNT - 1
+	 */
+	public static void setCornerRank(CubeState state, int rank)
+	{
+		int[] twists = new int[CubeState.CORNER_COUNT];
+		int twist = rank % Coordinates.TWIST_COUNT;
+		int sum = 0;
+		for (int position = CubeState.CORNER_COUNT - 2; position >= 0; position--)
+		{
+			twists[position] = twist % 3;
+			sum += twists[position];
+			twist /= 3;
+		}
+		twists[CubeState.CORNER_COUNT - 1] = (3 - sum % 3) % 3;
+
+		int[] digits = new int[CubeState.CORNER_COUNT];
+		int permutation = rank / Coordinates.TWIST_COUNT;
+		for (int position = CubeState.CORNER_COUNT - 1; position >= 0; position--)
+		{
+			digits[position] = permutation % (CubeState.CORNER_COUNT - position);
+			permutation /= CubeState.CORNER_COUNT - position;
+		}
+		int[] cubies = new int[CubeState.CORNER_COUNT];
+		unrank(digits, cubies);
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			state.setCorner(cubies[position], position, twists[position]);
+		}
+	}
+
+	/**
+	 * Change the edges of a state to the edges with a given rank, with the
+	 * last two edges in the order that goes with the corners of the state.
+	 * @param state the state to change, with its corners set
+	 * @param rank the edge rank, from 0 to EDGE_RANK_COUNT - 1
+	 */
+	public static void setEdgeRank(CubeState state, long rank)
+	{
+		int[] flips = new int[CubeState.EDGE_COUNT];
+		int flip = (int) (rank % Coordinates.FLIP_COUNT);
+		int sum = 0;
+		for (int position = CubeState.EDGE_COUNT - 2; position >= 0; position--)
+		{
+			flips[position] = flip & 1;
+			sum += flips[position];
+			flip >>= 1;
+		}
+		flips[CubeState.EDGE_COUNT - 1] = sum & 1;
+
+		// the digits of a permutation add up to an even number if and only
+		// if it swaps an even number of times
+		int[] digits = new int[CubeState.EDGE_COUNT];
+		long permutation = rank / Coordinates.FLIP_COUNT;
+		int parity = getCornerParity(state);
+		for (int position = CubeState.EDGE_COUNT - 3; position >= 0; position--)
+		{
+			digits[position] = (int) (permutation % (CubeState.EDGE_COUNT - position));
+			permutation /= CubeState.EDGE_COUNT - position;
+			parity ^= digits[position] & 1;
+		}
+		digits[CubeState.EDGE_COUNT - 2] = parity;
+		int[] cubies = new int[CubeState.EDGE_COUNT];
+		unrank(digits, cubies);
+		for (int position = 0; position < CubeState.EDGE_COUNT; position++)
+		{
+			state.setEdge(cubies[position], position, flips[position]);
+		}
+	}
+
+	/**
+	 * Get whether the corners of a state are swapped an odd number of times.
+	 */
+	private static int getCornerParity(CubeState state)
+	{
+		int parity = 0;
+		for (int position = 0; position < CubeState.CORNER_COUNT; position++)
+		{
+			int cubie = state.getCornerAt(position);
+			for (int later = position + 1; later < CubeState.CORNER_COUNT; later++)
+			{
+				if (state.getCornerAt(later) < cubie) parity ^= 1;
+			}
+		}
+		return parity;
+	}
+
+	/**
+	 * Fill an array with the permutation with the given digits: the number
+	 * of values later in it that are smaller than the value at each place.
+	 */
+	private static void unrank(int[] digits, int[] permutation)
+	{
+		int length = permutation.length;
+		boolean[] used = new boolean[length];
+		for (int i = 0; i < length; i++)
+		{
+			int skip = digits[i];
+			int value = 0;
+			while (used[value] || skip > 0)
+			{
+				if (!used[value]) skip--;
+				value++;
+			}
+			used[value] = true;
+			permutation[i] = value;
+		}
+	}
+}
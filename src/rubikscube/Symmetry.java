@@ -0,0 +1,345 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The 48 symmetries of a cube: the 24 ways of turning the whole cube and
+ * the 24 ways of turning it and then seeing it in a mirror. A symmetry
+ * sends each side to another side, and with it every position, cubie and
+ * move. A state seen through a symmetry is solved by the moves of its
+ * solution seen through the same symmetry, so one solution does for all
+ * the states that are the same but for a symmetry.
+ *
+ * A state seen through symmetry s has the cubie that s sends cubie c to at
+ * the position that s sends c's position to, with the face that s sends a
+ * face of c to on the side that s sends that face's side to.
+ *
+ * States are compared by their keys: the cubie and twist at each corner
+ * position in turn, then the cubie and flip at each edge position, so the
+ * canonical state of a state, the one with the least key of all the states
+ * it can be seen as, is the least of them in that order.
+ *
+ * Symmetries are numbered from 0 to COUNT - 1, and symmetry 0 is the
+ * identity.
+ * @author Cathal
+ *
+ */
+public class Symmetry
+{
+	public static final int COUNT = 48;
+	/**
+	 * The symmetry that sends every side to the side opposite it.
+	 */
+	public static final int INVERSION;
+
+	// indexed by [symmetry][side]: the side a symmetry sends a side to
+	private static final Side[][] SIDE_MAP = new Side[COUNT][];
+	private static final boolean[] REFLECTION = new boolean[COUNT];
+	private static final byte[] INVERSE = new byte[COUNT];
+	// indexed by [symmetry][position]: the position (and cubie) a symmetry
+	// sends a position (and cubie) to, and the slot of its image that the
+	// image of its first side is at
+	private static final byte[][] CORNER_MAP = new byte[COUNT][CubeState.CORNER_COUNT];
+	private static final byte[][] CORNER_SHIFT = new byte[COUNT][CubeState.CORNER_COUNT];
+	private static final byte[][] EDGE_MAP = new byte[COUNT][CubeState.EDGE_COUNT];
+	private static final byte[][] EDGE_SHIFT = new byte[COUNT][CubeState.EDGE_COUNT];
+	// indexed by [symmetry][move]
+	private static final byte[][] MOVE_MAP = new byte[COUNT][CubeState.MOVE_COUNT];
+	// indexed by [side]: the symmetry of turning the whole cube a quarter
+	// turn clockwise looking at that side
+	private static final byte[] QUARTER_TURN = new byte[6];
+
+	static
+	{
+		Side[] sides = Side.values();
+		Side[] mirror = sides.clone();
+		mirror[Side.LEFT.ordinal()] = Side.RIGHT;
+		mirror[Side.RIGHT.ordinal()] = Side.LEFT;
+		Side[][] generators = {CubeState.QUARTER_TURNS[Side.TOP.ordinal()],
+				CubeState.QUARTER_TURNS[Side.RIGHT.ordinal()], mirror};
+
+		// every combination of the generators, the identity first
+		ArrayList<Side[]> maps = new ArrayList<>();
+		maps.add(sides);
+		for (int i = 0; i < maps.size(); i++)
+		{
+			for (Side[] generator : generators)
+			{
+				Side[] map = compose(generator, maps.get(i));
+				if (indexOf(maps, map) < 0) maps.add(map);
+			}
+		}
+		for (int s = 0; s < COUNT; s++)
+		{
+			SIDE_MAP[s] = maps.get(s);
+			REFLECTION[s] = mapPositions(CubeState.CORNER_SIDES, SIDE_MAP[s],
+					CORNER_MAP[s], CORNER_SHIFT[s]);
+			mapPositions(CubeState.EDGE_SIDES, SIDE_MAP[s], EDGE_MAP[s], EDGE_SHIFT[s]);
+			for (int move = 0; move < CubeState.MOVE_COUNT; move++)
+			{
+				// a turn seen in a mirror turns the other way
+				int amount = CubeState.moveAmount(move);
+				MOVE_MAP[s][move] = (byte) CubeState.moveIndex(
+						SIDE_MAP[s][move / 3], REFLECTION[s] ? 4 - amount : amount);
+			}
+		}
+		for (int s = 0; s < COUNT; s++)
+		{
+			Side[] inverse = new Side[sides.length];
+			for (Side side : sides)
+			{
+				inverse[SIDE_MAP[s][side.ordinal()].ordinal()] = side;
+			}
+			INVERSE[s] = (byte) indexOf(maps, inverse);
+		}
+		for (Side side : sides)
+		{
+			QUARTER_TURN[side.ordinal()] = (byte) indexOf(maps,
+					CubeState.QUARTER_TURNS[side.ordinal()]);
+		}
+		Side[] opposite = new Side[sides.length];
+		for (Side side : sides)
+		{
+			// sides are in pairs of opposites: TOP BOTTOM, RIGHT LEFT, FRONT BACK
+			opposite[side.ordinal()] = sides[side.ordinal() ^ 1];
+		}
+		INVERSION = indexOf(maps, opposite);
+	}
+
+	private static Side[] compose(Side[] after, Side[] before)
+	{
+		Side[] map = new Side[before.length];
+		for (int i = 0; i < before.length; i++)
+		{
+			map[i] = after[before[i].ordinal()];
+		}
+		return map;
+	}
+
+	private static int indexOf(ArrayList<Side[]> maps, Side[] map)
+	{
+		for (int i = 0; i < maps.size(); i++)
+		{
+			if (Arrays.equals(maps.get(i), map)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Fill in where a symmetry sends each position, and where in its image
+	 * the first side of it goes.
+	 * @return true if the symmetry is a reflection, that is it turns the
+	 * sides of a position the other way round
+	 */
+	private static boolean mapPositions(Side[][] positions, Side[] sideMap,
+			byte[] positionMap, byte[] shift)
+	{
+		int size = positions[0].length;
+		boolean reflection = false;
+		for (int position = 0; position < positions.length; position++)
+		{
+			Side[] image = new Side[size];
+			for (int i = 0; i < size; i++)
+			{
+				image[i] = sideMap[positions[position][i].ordinal()];
+			}
+			int target = size == 3 ? CubeState.findCorner(image) : CubeState.findEdge(image);
+			positionMap[position] = (byte) target;
+			shift[position] = (byte) CubeState.indexOf(positions[target], image[0]);
+			if (size == 3)
+			{
+				reflection = positions[target][(shift[position] + 1) % 3] != image[1];
+			}
+		}
+		return reflection;
+	}
+
+	/**
+	 * Get the symmetry that undoes a symmetry.
+	 * @param symmetry the symmetry, from 0 to COUNT - 1
+	 * @return the inverse symmetry
+	 */
+	public static int inverse(int symmetry)
+	{
+		return INVERSE[symmetry];
+	}
+
+	/**
+	 * Get the symmetry of turning the whole cube a quarter turn clockwise,
+	 * looking at a side.
+	 * @param side the side to look at
+	 * @return the symmetry
+	 */
+	public static int getQuarterTurn(Side side)
+	{
+		return QUARTER_TURN[side.ordinal()];
+	}
+
+	/**
+	 * Get the side a symmetry sends a side to.
+	 * @param symmetry the symmetry, from 0 to COUNT - 1
+	 * @param side the side
+	 * @return the side it is sent to
+	 */
+	public static Side getSide(int symmetry, Side side)
+	{
+		return SIDE_MAP[symmetry][side.ordinal()];
+	}
+
+	/**
+	 * Is a symmetry a mirror image, which can't be made by turning the cube?
+	 * @param symmetry the symmetry, from 0 to COUNT - 1
+	 * @return true if the symmetry is a reflection
+	 */
+	public static boolean isReflection(int symmetry)
+	{
+		return REFLECTION[symmetry];
+	}
+
+	/**
+	 * See a state through a symmetry.
+	 * (Precondition: state is not result)
+	 * @param state the state to see
+	 * @param symmetry the symmetry, from 0 to COUNT - 1
+	 * @param result the state to put the state as seen through the symmetry
+	 * in
+	 */
+	public static void conjugate(CubeState state, int symmetry, CubeState result)
+	{
+		byte[] map = CORNER_MAP[symmetry];
+		for (int cubie = 0; cubie < CubeState.CORNER_COUNT; cubie++)
+		{
+			int position = state.getCornerPosition(cubie);
+			result.setCorner(map[cubie], map[position],
+					cornerOrientation(symmetry, cubie, position,
+							state.getCornerOrientation(cubie)));
+		}
+		map = EDGE_MAP[symmetry];
+		byte[] shift = EDGE_SHIFT[symmetry];
+		for (int cubie = 0; cubie < CubeState.EDGE_COUNT; cubie++)
+		{
+			int position = state.getEdgePosition(cubie);
+			result.setEdge(map[cubie], map[position],
+					(state.getEdgeOrientation(cubie) + shift[position] - shift[cubie]) & 1);
+		}
+	}
+
+	/**
+	 * Get the orientation a corner cubie at a position has after a symmetry.
+	 */
+	private static int cornerOrientation(int symmetry, int cubie, int position,
+			int orientation)
+	{
+		byte[] shift = CORNER_SHIFT[symmetry];
+		int turn = shift[position] - shift[cubie];
+		if (REFLECTION[symmetry]) orientation = -orientation;
+		return (turn + orientation + 6) % 3;
+	}
+
+	/**
+	 * See a list of moves through a symmetry. The moves solve a state seen
+	 * through the symmetry if they solved the state.
+	 * @param moves the move indices, which are not changed
+	 * @param symmetry the symmetry, from 0 to COUNT - 1
+	 * @return the moves seen through the symmetry
+	 */
+	public static byte[] transform(byte[] moves, int symmetry)
+	{
+		byte[] map = MOVE_MAP[symmetry];
+		byte[] transformed = new byte[moves.length];
+		for (int i = 0; i < moves.length; i++)
+		{
+			transformed[i] = map[moves[i]];
+		}
+		return transformed;
+	}
+
+	/**
+	 * Find the canonical state of a state, which is the same for every state
+	 * that is the same but for a symmetry.
+	 * (Precondition: state is not canonical)
+	 * @param state the state
+	 * @param canonical the state to put the canonical state in
+	 * @return the symmetry that the state is seen through to give the
+	 * canonical state
+	 */
+	public static int getCanonical(CubeState state, CubeState canonical)
+	{
+		int symmetry = canonicalize(state, new long[2]);
+		conjugate(state, symmetry, canonical);
+		return symmetry;
+	}
+
+	/**
+	 * Find the key of the canonical state of a state without making it (see
+	 * getCanonical). Two states have the same key if and only if they are
+	 * the same but for a symmetry.
+	 * @param state the state
+	 * @param key where to put the corner key and the edge key: 5 bits for
+	 * each position, the cubie at it and its orientation, the first position
+	 * highest
+	 * @return the symmetry that the state is seen through to give the
+	 * canonical state
+	 */
+	public static int canonicalize(CubeState state, long[] key)
+	{
+		int best = 0;
+		key[0] = Long.MAX_VALUE;
+		key[1] = Long.MAX_VALUE;
+		for (int s = 0; s < COUNT; s++)
+		{
+			long corners = getCornerKey(state, s);
+			if (corners > key[0]) continue;
+			long edges = getEdgeKey(state, s);
+			if (corners < key[0] || edges < key[1])
+			{
+				key[0] = corners;
+				key[1] = edges;
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Get the corners of a state seen through a symmetry, packed into a
+	 * long: 5 bits for each position, the cubie at it and its twist, the
+	 * first position highest.
+	 */
+	private static long getCornerKey(CubeState state, int symmetry)
+	{
+		byte[] map = CORNER_MAP[symmetry];
+		long key = 0;
+		for (int cubie = 0; cubie < CubeState.CORNER_COUNT; cubie++)
+		{
+			int position = state.getCornerPosition(cubie);
+			int orientation = cornerOrientation(symmetry, cubie, position,
+					state.getCornerOrientation(cubie));
+			key |= (long) (map[cubie] << 2 | orientation)
+					<< 5 * (CubeState.CORNER_COUNT - 1 - map[position]);
+		}
+		return key;
+	}
+
+	/**
+	 * Get the edges of a state seen through a symmetry, packed into a long:
+	 * 5 bits for each position, the cubie at it and its flip, the first
+	 * position highest.
+	 */
+	private static long getEdgeKey(CubeState state, int symmetry)
+	{
+		byte[] map = EDGE_MAP[symmetry];
+		byte[] shift = EDGE_SHIFT[symmetry];
+		long key = 0;
+		for (int cubie = 0; cubie < CubeState.EDGE_COUNT; cubie++)
+		{
+			int position = state.getEdgePosition(cubie);
+			int orientation = (state.getEdgeOrientation(cubie) + shift[position]
+					- shift[cubie]) & 1;
+			key |= (long) (map[cubie] << 1 | orientation)
+					<< 5 * (CubeState.EDGE_COUNT - 1 - map[position]);
+		}
+		return key;
+	}
+}
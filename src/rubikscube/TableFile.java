@@ -0,0 +1,204 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves and loads precomputed tables, so they are built once and loaded
+ * quickly every time after.
+ *
+ * A table file starts with a header: a magic number, the version of the
+ * tables, then the number and lengths of the short tables and of the byte
+ * tables. The table data follows in the same order, big endian. A file whose
+ * header doesn't match the tables asked for is ignored, so changing a table
+ * only needs its version to go up.
+ *
+ * Files are kept in the directory named by the rubikscube.tables system
+ * property, or .rubikscube in the user's home directory.
+ * @author Cathal
+ *
+ */
+public class TableFile
+{
+	private static final int MAGIC = 0x52435442; // "RCTB"
+
+	/**
+	 * Get the file a table set with a given name is kept in.
+	 * @param name the file name
+	 * @return the file in the table directory
+	 */
+	public static File getFile(String name)
+	{
+		String directory = System.getProperty("rubikscube.tables",
+				System.getProperty("user.home") + File.separator + ".rubikscube");
+		return new File(directory, name);
+	}
+
+	/**
+	 * Fill tables from a file.
+	 * @param file the file to read
+	 * @param version the version the tables must have
+	 * @param shortTables the short tables to fill, with their lengths set
+	 * @param byteTables the byte tables to fill, with their lengths set
+	 * @return true if the tables were filled, false if the file doesn't exist
+	 * or doesn't hold tables of this version and these lengths
+	 */
+	public static boolean read(File file, int version, short[][] shortTables,
+			byte[][] byteTables)
+	{
+		if (!file.isFile()) return false;
+		try (RandomAccessFile in = new RandomAccessFile(file, "r");
+				FileChannel channel = in.getChannel())
+		{
+			long headerSize = headerSize(shortTables, byteTables);
+			if (channel.size() != headerSize + dataSize(shortTables, byteTables))
+			{
+				return false;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != version ||
+					!checkLengths(buffer, shortTables, byteTables))
+			{
+				return false;
+			}
+			for (short[] table : shortTables)
+			{
+				buffer.asShortBuffer().get(table);
+				buffer.position(buffer.position() + table.length * 2);
+			}
+			for (byte[] table : byteTables)
+			{
+				buffer.get(table);
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not read table file " + file + ": " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Save tables to a file, making its directory if needed.
+	 * @param file the file to write
+	 * @param version the version of the tables
+	 * @param shortTables the short tables to save
+	 * @param byteTables the byte tables to save
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(File file, int version, short[][] shortTables,
+			byte[][] byteTables) throws IOException
+	{
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Could not make directory " + directory);
+		}
+		// written to a temporary file first so that a half written file is
+		// never read
+		File temporary = new File(directory, file.getName() + ".tmp");
+		try (RandomAccessFile out = new RandomAccessFile(temporary, "rw");
+				FileChannel channel = out.getChannel())
+		{
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate((int) headerSize(shortTables, byteTables));
+			header.putInt(MAGIC).putInt(version).putInt(shortTables.length);
+			for (short[] table : shortTables)
+			{
+				header.putInt(table.length);
+			}
+			header.putInt(byteTables.length);
+			for (byte[] table : byteTables)
+			{
+				header.putInt(table.length);
+			}
+			header.flip();
+			writeFully(channel, header);
+			for (short[] table : shortTables)
+			{
+				ByteBuffer data = ByteBuffer.allocate(table.length * 2);
+				data.asShortBuffer().put(table);
+				writeFully(channel, data);
+			}
+			for (byte[] table : byteTables)
+			{
+				writeFully(channel, ByteBuffer.wrap(table));
+			}
+		}
+		if (!temporary.renameTo(file))
+		{
+			file.delete();
+			if (!temporary.renameTo(file))
+			{
+				throw new IOException("Could not rename " + temporary + " to " + file);
+			}
+		}
+	}
+
+	/**
+	 * Save tables, printing a message instead of failing if they can't be
+	 * saved, as they can always be built again.
+	 */
+	static void writeQuietly(File file, int version, short[][] shortTables,
+			byte[][] byteTables)
+	{
+		try
+		{
+			write(file, version, shortTables, byteTables);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not save table file " + file + ": " + e);
+		}
+	}
+
+	private static boolean checkLengths(ByteBuffer buffer, short[][] shortTables,
+			byte[][] byteTables)
+	{
+		if (buffer.getInt() != shortTables.length) return false;
+		for (short[] table : shortTables)
+		{
+			if (buffer.getInt() != table.length) return false;
+		}
+		if (buffer.getInt() != byteTables.length) return false;
+		for (byte[] table : byteTables)
+		{
+			if (buffer.getInt() != table.length) return false;
+		}
+		return true;
+	}
+
+	private static long headerSize(short[][] shortTables, byte[][] byteTables)
+	{
+		return 4L * (4 + shortTables.length + byteTables.length);
+	}
+
+	private static long dataSize(short[][] shortTables, byte[][] byteTables)
+	{
+		long size = 0;
+		for (short[] table : shortTables)
+		{
+			size += table.length * 2L;
+		}
+		for (byte[] table : byteTables)
+		{
+			size += table.length;
+		}
+		return size;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+}
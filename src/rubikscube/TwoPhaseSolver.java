@@ -0,0 +1,346 @@
+package rubikscube;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Solves a rubiks cube in two phases, as an alternative to the layer by layer
+ * method of the Manipulator, giving much shorter solutions.
+ *
+ * Phase one turns any side to get the corners twisted 0, the edges flipped 0
+ * and the slice edges into the slice. The cube is then in the group reached
+ * by MoveTables.PHASE_TWO_MOVES, which phase two uses to solve it. Both
+ * phases are iterative deepening searches over coordinates, cut short by
+ * pruning tables giving the fewest moves any state needs to reach the goal
+ * of its phase.
+ *
+ * Longer phase one solutions are tried until the total is at most the
+ * maximum length asked for, or time runs out, in which case the shortest
+ * solution found so far is given, or null if none was found. A state that
+ * can't be solved (see Solvability) is never solved, so it takes the whole
+ * time, unless the search is asked to go on until it finds a solution.
+ *
+ * Phase one is pruned by the pairs of twist, flip and slice, taking the
+ * most moves any of the three pairs needs. That is weaker than a table of
+ * all three together, which needs symmetry to be small enough to keep, so
+ * solves are not as fast as Kociemba's solver: with DEFAULT_MAX_LENGTH a
+ * random state takes some 20 milliseconds on average and the slowest take
+ * over half a second, while allowing 22 moves takes some 6 milliseconds.
+ *
+ * A solver keeps its search state in its fields, so each thread needs its
+ * own. The tables are shared, and saved with TableFile the first time they
+ * are built.
+ * @author Cathal
+ *
+ */
+public class TwoPhaseSolver implements CubeSolver
+{
+	public static final int DEFAULT_MAX_LENGTH = 21;
+	public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+	public static final int VERSION = 2;
+	public static final String FILE_NAME = "twophase.bin";
+
+	private static final int MAX_PHASE_ONE_LENGTH = 20;
+	// phase two can need 18 moves, but a phase one solution that leaves that
+	// many is rarely worth finishing: a longer phase one leaving fewer gives
+	// a shorter total sooner, so longer phase twos aren't searched
+	private static final int MAX_PHASE_TWO_LENGTH = 11;
+	// phase one solutions are only finished off if this will be shorter than
+	// what has been found so far
+	private static final int MAX_LENGTH = 31;
+
+	private static final int MOVE_COUNT = CubeState.MOVE_COUNT;
+	private static final int[] ALL_MOVES = new int[MOVE_COUNT];
+	private static final boolean[] IS_PHASE_TWO_MOVE = new boolean[MOVE_COUNT];
+
+	private static final byte[] TWIST_SLICE_DEPTH =
+			new byte[Coordinates.TWIST_COUNT * Coordinates.SLICE_COUNT];
+	private static final byte[] FLIP_SLICE_DEPTH =
+			new byte[Coordinates.FLIP_COUNT * Coordinates.SLICE_COUNT];
+	private static final byte[] TWIST_FLIP_DEPTH =
+			new byte[Coordinates.TWIST_COUNT * Coordinates.FLIP_COUNT];
+	private static final byte[] CORNER_SLICE_DEPTH = new byte[
+			Coordinates.CORNER_PERMUTATION_COUNT * Coordinates.SLICE_PERMUTATION_COUNT];
+	private static final byte[] EDGE8_SLICE_DEPTH = new byte[
+			Coordinates.EDGE8_PERMUTATION_COUNT * Coordinates.SLICE_PERMUTATION_COUNT];
+
+	static
+	{
+		for (int move = 0; move < MOVE_COUNT; move++)
+		{
+			ALL_MOVES[move] = move;
+		}
+		for (int move : MoveTables.PHASE_TWO_MOVES)
+		{
+			IS_PHASE_TWO_MOVE[move] = true;
+		}
+		byte[][] tables = {TWIST_SLICE_DEPTH, FLIP_SLICE_DEPTH, TWIST_FLIP_DEPTH,
+				CORNER_SLICE_DEPTH, EDGE8_SLICE_DEPTH};
+		File file = TableFile.getFile(FILE_NAME);
+		if (!TableFile.read(file, MoveTables.VERSION * 1000 + VERSION,
+				new short[0][], tables))
+		{
+			buildDepths(MoveTables.TWIST, Coordinates.TWIST_COUNT, MoveTables.SLICE,
+					Coordinates.SLICE_COUNT, ALL_MOVES, TWIST_SLICE_DEPTH);
+			buildDepths(MoveTables.FLIP, Coordinates.FLIP_COUNT, MoveTables.SLICE,
+					Coordinates.SLICE_COUNT, ALL_MOVES, FLIP_SLICE_DEPTH);
+			buildDepths(MoveTables.TWIST, Coordinates.TWIST_COUNT, MoveTables.FLIP,
+					Coordinates.FLIP_COUNT, ALL_MOVES, TWIST_FLIP_DEPTH);
+			buildDepths(MoveTables.CORNER_PERMUTATION,
+					Coordinates.CORNER_PERMUTATION_COUNT, MoveTables.SLICE_PERMUTATION,
+					Coordinates.SLICE_PERMUTATION_COUNT, MoveTables.PHASE_TWO_MOVES,
+					CORNER_SLICE_DEPTH);
+			buildDepths(MoveTables.EDGE8_PERMUTATION,
+					Coordinates.EDGE8_PERMUTATION_COUNT, MoveTables.SLICE_PERMUTATION,
+					Coordinates.SLICE_PERMUTATION_COUNT, MoveTables.PHASE_TWO_MOVES,
+					EDGE8_SLICE_DEPTH);
+			TableFile.writeQuietly(file, MoveTables.VERSION * 1000 + VERSION,
+					new short[0][], tables);
+		}
+	}
+
+	private final CubeState start = new CubeState();
+	private final CubeState phaseTwoStart = new CubeState();
+	private final int[] moves = new int[MAX_PHASE_ONE_LENGTH + MAX_PHASE_TWO_LENGTH];
+	private final int[] best = new int[MAX_PHASE_ONE_LENGTH + MAX_PHASE_TWO_LENGTH];
+	private int bestLength;
+	private int maxLength;
+	private long deadline;
+	private boolean untilFound;
+	private boolean outOfTime;
+	private long nodes;
+
+	/**
+	 * Solve a cube state with at most DEFAULT_MAX_LENGTH moves if that can be
+	 * found in DEFAULT_TIMEOUT_MILLIS.
+	 * @param state the state to solve, which is not changed
+	 * @return the moves of the solution as move indices (see
+	 * CubeState.moveIndex), or null if no solution was found in time
+	 */
+	@Override
+	public byte[] solve(CubeState state)
+	{
+		return this.solve(state, DEFAULT_MAX_LENGTH, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Solve a cube state. The search stops as soon as a solution with at most
+	 * maxLength moves is found, or when the time is up.
+	 * @param state the state to solve, which is not changed
+	 * @param maxLength the most moves a solution can have to stop searching
+	 * @param timeoutMillis how long to search for a short enough solution
+	 * @return the moves of the shortest solution found as move indices (see
+	 * CubeState.moveIndex), or null if no solution was found in time
+	 */
+	public byte[] solve(CubeState state, int maxLength, long timeoutMillis)
+	{
+		return this.solve(state, maxLength, timeoutMillis, false);
+	}
+
+	/**
+	 * Solve a cube state, going on past the time limit if no solution has
+	 * been found yet, if asked to.
+	 * (Precondition: untilFound is false or the state can be solved, see
+	 * Solvability, or the search never stops)
+	 * @param state the state to solve, which is not changed
+	 * @param maxLength the most moves a solution can have to stop searching
+	 * @param timeoutMillis how long to search for a short enough solution
+	 * @param untilFound true to only let time run out once some solution has
+	 * been found
+	 * @return the moves of the shortest solution found as move indices (see
+	 * CubeState.moveIndex), or null if no solution was found in time
+	 */
+	public byte[] solve(CubeState state, int maxLength, long timeoutMillis,
+			boolean untilFound)
+	{
+		this.start.copyFrom(state);
+		this.maxLength = maxLength;
+		this.bestLength = MAX_LENGTH + 1;
+		this.deadline = System.nanoTime() + timeoutMillis * 1000000L;
+		this.untilFound = untilFound;
+		this.outOfTime = false;
+		this.nodes = 0;
+
+		int twist = Coordinates.getTwist(state);
+		int flip = Coordinates.getFlip(state);
+		int slice = Coordinates.getSlice(state);
+		for (int depth = phaseOneDepth(twist, flip, slice);
+				depth <= MAX_PHASE_ONE_LENGTH && depth < this.bestLength; depth++)
+		{
+			if (this.phaseOne(twist, flip, slice, 0, depth)) break;
+		}
+
+		if (this.bestLength > MAX_LENGTH) return null;
+		byte[] solution = new byte[this.bestLength];
+		for (int i = 0; i < this.bestLength; i++)
+		{
+			solution[i] = (byte) this.best[i];
+		}
+		return solution;
+	}
+
+	/**
+	 * Search phase one solutions of exactly togo more moves.
+	 * @return true if the search is over
+	 */
+	private boolean phaseOne(int twist, int flip, int slice, int depth, int togo)
+	{
+		if (togo == 0)
+		{
+			if (twist == 0 && flip == 0 && slice == 0 &&
+					(depth == 0 || !IS_PHASE_TWO_MOVE[this.moves[depth - 1]]))
+			{
+				return this.phaseTwo(depth);
+			}
+			return false;
+		}
+		if (this.isOutOfTime()) return true;
+
+		for (int move = 0; move < MOVE_COUNT; move++)
+		{
+			if (this.isRedundant(move, depth)) continue;
+			int newTwist = MoveTables.twist(twist, move);
+			int newFlip = MoveTables.flip(flip, move);
+			int newSlice = MoveTables.slice(slice, move);
+			if (phaseOneDepth(newTwist, newFlip, newSlice) >= togo) continue;
+
+			this.moves[depth] = move;
+			if (this.phaseOne(newTwist, newFlip, newSlice, depth + 1, togo - 1))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finish a phase one solution of a given length with the shortest phase
+	 * two solution that beats the best found so far.
+	 * @return true if the search is over
+	 */
+	private boolean phaseTwo(int phaseOneLength)
+	{
+		this.phaseTwoStart.copyFrom(this.start);
+		for (int i = 0; i < phaseOneLength; i++)
+		{
+			this.phaseTwoStart.move(this.moves[i]);
+		}
+		int corners = Coordinates.getCornerPermutation(this.phaseTwoStart);
+		int edges = Coordinates.getEdge8Permutation(this.phaseTwoStart);
+		int slice = Coordinates.getSlicePermutation(this.phaseTwoStart);
+
+		int limit = Math.min(this.bestLength - 1 - phaseOneLength, MAX_PHASE_TWO_LENGTH);
+		for (int depth = phaseTwoDepth(corners, edges, slice);
+				depth <= limit && !this.outOfTime; depth++)
+		{
+			if (this.phaseTwo(corners, edges, slice, phaseOneLength, depth))
+			{
+				this.bestLength = phaseOneLength + depth;
+				System.arraycopy(this.moves, 0, this.best, 0, this.bestLength);
+				return this.bestLength <= this.maxLength;
+			}
+		}
+		return this.outOfTime;
+	}
+
+	/**
+	 * Search phase two solutions of exactly togo more moves.
+	 * @return true if one was found, which is left in moves
+	 */
+	private boolean phaseTwo(int corners, int edges, int slice, int depth, int togo)
+	{
+		if (togo == 0)
+		{
+			return corners == 0 && edges == 0 && slice == 0;
+		}
+		if (this.isOutOfTime()) return false;
+		for (int move : MoveTables.PHASE_TWO_MOVES)
+		{
+			if (this.isRedundant(move, depth)) continue;
+			int newCorners = MoveTables.cornerPermutation(corners, move);
+			int newEdges = MoveTables.edge8Permutation(edges, move);
+			int newSlice = MoveTables.slicePermutation(slice, move);
+			if (phaseTwoDepth(newCorners, newEdges, newSlice) >= togo) continue;
+
+			this.moves[depth] = move;
+			if (this.phaseTwo(newCorners, newEdges, newSlice, depth + 1, togo - 1))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A move is redundant after a move of the same side, or after a move of
+	 * the opposite side that comes later in the order of the sides.
+	 */
+	private boolean isRedundant(int move, int depth)
+	{
+		if (depth == 0) return false;
+		int side = move / 3;
+		int lastSide = this.moves[depth - 1] / 3;
+		return side == lastSide || (side / 2 == lastSide / 2 && side < lastSide);
+	}
+
+	/**
+	 * Only look at the clock every few thousand nodes. When searching until
+	 * found, time only runs out once there is some solution to give.
+	 */
+	private boolean isOutOfTime()
+	{
+		this.nodes++;
+		if (!this.outOfTime && (this.nodes & 0xFFF) == 0 &&
+				(!this.untilFound || this.bestLength <= MAX_LENGTH) &&
+				System.nanoTime() > this.deadline)
+		{
+			this.outOfTime = true;
+		}
+		return this.outOfTime;
+	}
+
+	private static int phaseOneDepth(int twist, int flip, int slice)
+	{
+		return Math.max(TWIST_FLIP_DEPTH[twist * Coordinates.FLIP_COUNT + flip],
+				Math.max(TWIST_SLICE_DEPTH[twist * Coordinates.SLICE_COUNT + slice],
+						FLIP_SLICE_DEPTH[flip * Coordinates.SLICE_COUNT + slice]));
+	}
+
+	private static int phaseTwoDepth(int corners, int edges, int slice)
+	{
+		return Math.max(
+				CORNER_SLICE_DEPTH[corners * Coordinates.SLICE_PERMUTATION_COUNT + slice],
+				EDGE8_SLICE_DEPTH[edges * Coordinates.SLICE_PERMUTATION_COUNT + slice]);
+	}
+
+	/**
+	 * Work out the fewest moves from each pair of coordinates to both being 0
+	 * by a breadth first search out from 0.
+	 */
+	private static void buildDepths(short[] tableA, int countA, short[] tableB,
+			int countB, int[] moves, byte[] depths)
+	{
+		Arrays.fill(depths, (byte) -1);
+		depths[0] = 0;
+		int done = 1;
+		for (byte depth = 0; done < depths.length; depth++)
+		{
+			for (int index = 0; index < depths.length; index++)
+			{
+				if (depths[index] != depth) continue;
+				int a = index / countB;
+				int b = index % countB;
+				for (int move : moves)
+				{
+					int next = (tableA[a * MOVE_COUNT + move] & 0xFFFF) * countB +
+							(tableB[b * MOVE_COUNT + move] & 0xFFFF);
+					if (depths[next] == -1)
+					{
+						depths[next] = (byte) (depth + 1);
+						done++;
+					}
+				}
+			}
+		}
+	}
+}